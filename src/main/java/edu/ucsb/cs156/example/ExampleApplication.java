@@ -2,12 +2,16 @@ package edu.ucsb.cs156.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class ExampleApplication {
 
   public static void main(String[] args) {
-    SpringApplication.run(ExampleApplication.class, args);
+    SpringApplication application = new SpringApplication(ExampleApplication.class);
+    // Records startup steps for StartupReport; the buffer is drained once the app is ready
+    application.setApplicationStartup(new BufferingApplicationStartup(20000));
+    application.run(args);
   }
 
 }
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.jdbc.SqlStats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration for asynchronous controller methods.
+ *
+ * Handlers that return a {@link java.util.concurrent.Callable} (such as the
+ * <code>/all</code> endpoints) run on a dedicated, bounded pool instead of
+ * holding a Tomcat worker thread, so slow list queries cannot starve
+ * short requests such as <code>getById</code>.
+ *
+ * @see <a href=
+ *      "https://docs.spring.io/spring-framework/docs/current/reference/html/web.html#mvc-ann-async">https://docs.spring.io/spring-framework/docs/current/reference/html/web.html#mvc-ann-async</a>
+ */
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+  @Value("${app.async.corePoolSize:4}")
+  private int corePoolSize;
+
+  @Value("${app.async.maxPoolSize:16}")
+  private int maxPoolSize;
+
+  @Value("${app.async.queueCapacity:100}")
+  private int queueCapacity;
+
+  @Value("${app.async.timeoutMillis:30000}")
+  private long timeoutMillis;
+
+  @Bean
+  public MeteredThreadPoolTaskExecutor controllerTaskExecutor() {
+    MeteredThreadPoolTaskExecutor executor = new MeteredThreadPoolTaskExecutor();
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(maxPoolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("controller-async-");
+    executor.setTaskDecorator(SqlStats::propagate);
+    return executor;
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(controllerTaskExecutor());
+    configurer.setDefaultTimeout(timeoutMillis);
+  }
+}
@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs a warning at startup for every derived repository query (such as
+ * <code>UserRepository.findByEmail</code>) that filters only on columns
+ * without an index.
+ *
+ * A query is considered supported when each of its <code>Or</code> branches
+ * filters on at least one column that is the leading column of an index or
+ * of the primary key, as reported by the JDBC driver. Methods with an
+ * explicit <code>@Query</code> are skipped. Disable with
+ * <code>app.indexCheck.enabled=false</code>.
+ */
+@Component
+@Slf4j
+public class DerivedQueryIndexCheck {
+
+  @Autowired
+  ListableBeanFactory beanFactory;
+
+  @Autowired
+  DataSource dataSource;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Value("${app.indexCheck.enabled:true}")
+  private boolean enabled;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void checkIndexes() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      List<String> warnings = findUnindexedQueries();
+      warnings.forEach(log::warn);
+      log.info("Derived query index check found {} unindexed queries", warnings.size());
+    } catch (SQLException e) {
+      log.warn("Could not read index metadata: {}", e.getMessage());
+    }
+  }
+
+  List<String> findUnindexedQueries() throws SQLException {
+    Repositories repositories = new Repositories(beanFactory);
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    Map<String, Set<String>> indexedByTable = new HashMap<>();
+    List<String> warnings = new ArrayList<>();
+
+    try (Connection connection = dataSource.getConnection()) {
+      DatabaseMetaData metaData = connection.getMetaData();
+      for (Class<?> domainType : repositories) {
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(domainType);
+        if (!(persister instanceof AbstractEntityPersister)) {
+          continue;
+        }
+        AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+        String table = entityPersister.getTableName();
+        Set<String> indexed = indexedByTable.get(table);
+        if (indexed == null) {
+          indexed = leadingIndexColumns(metaData, table);
+          indexedByTable.put(table, indexed);
+        }
+
+        RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+        for (Method method : information.getQueryMethods()) {
+          if (method.isAnnotationPresent(Query.class)) {
+            continue;
+          }
+          for (String columns : unindexedBranches(method.getName(), domainType,
+              property -> columnOf(entityPersister, property), indexed)) {
+            warnings.add("%s.%s filters %s on %s, which has no index"
+                .formatted(information.getRepositoryInterface().getSimpleName(), method.getName(), table, columns));
+          }
+        }
+      }
+    }
+    return warnings;
+  }
+
+  /**
+   * Returns the columns of each <code>Or</code> branch of a derived query
+   * that filters on no indexed column. Returns nothing for methods that are
+   * not derived queries.
+   */
+  static List<String> unindexedBranches(String methodName, Class<?> domainType,
+      Function<String, String> columnOf, Set<String> indexed) {
+    PartTree tree;
+    try {
+      tree = new PartTree(methodName, domainType);
+    } catch (RuntimeException e) {
+      return List.of();
+    }
+    List<String> unindexed = new ArrayList<>();
+    for (PartTree.OrPart branch : tree) {
+      Set<String> columns = new LinkedHashSet<>();
+      boolean supported = false;
+      for (Part part : branch) {
+        String column = columnOf.apply(part.getProperty().toDotPath());
+        if (column == null) {
+          // a nested path; its join is indexed by the foreign key, so do not second-guess it
+          supported = true;
+          continue;
+        }
+        columns.add(column);
+        supported |= indexed.contains(column);
+      }
+      if (!supported && !columns.isEmpty()) {
+        unindexed.add(String.join(", ", columns));
+      }
+    }
+    return unindexed;
+  }
+
+  private static String columnOf(AbstractEntityPersister persister, String property) {
+    if (property.contains(".")) {
+      return null;
+    }
+    if (property.equals(persister.getIdentifierPropertyName())) {
+      return persister.getIdentifierColumnNames()[0].toLowerCase(Locale.ROOT);
+    }
+    return persister.getPropertyColumnNames(property)[0].toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> leadingIndexColumns(DatabaseMetaData metaData, String table) throws SQLException {
+    Set<String> columns = new HashSet<>();
+    // drivers differ in how they fold unquoted identifiers (H2 upper, Postgres lower)
+    for (String name : Set.of(table, table.toUpperCase(Locale.ROOT), table.toLowerCase(Locale.ROOT))) {
+      try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+        while (rs.next()) {
+          if (rs.getShort("ORDINAL_POSITION") == 1 && rs.getString("COLUMN_NAME") != null) {
+            columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+          }
+        }
+      }
+      try (ResultSet rs = metaData.getPrimaryKeys(null, null, name)) {
+        while (rs.next()) {
+          if (rs.getShort("KEY_SEQ") == 1) {
+            columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+          }
+        }
+      }
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.web.FilterChainProxy;
+
+/**
+ * Settings for the <code>faststart</code> profile, which turns on lazy bean
+ * initialization (see application-faststart.properties).
+ *
+ * The beans listed here stay eager: the database and JPA setup so schema
+ * problems still fail the deploy rather than the first request, and the
+ * security filter chain so no request is ever served before it exists.
+ */
+@Configuration
+@Profile("faststart")
+public class FastStartConfig {
+
+  @Bean
+  static LazyInitializationExcludeFilter eagerCriticalBeans() {
+    return LazyInitializationExcludeFilter.forBeanTypes(
+        DataSource.class, EntityManagerFactory.class, FilterChainProxy.class,
+        StartupReport.class, DerivedQueryIndexCheck.class);
+  }
+}
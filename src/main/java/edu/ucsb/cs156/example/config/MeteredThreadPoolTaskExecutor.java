@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import edu.ucsb.cs156.example.models.ExecutorStats;
+
+/**
+ * A bounded thread pool that counts the tasks it has rejected, so that
+ * queue depth and rejections can be reported by the admin endpoints.
+ */
+public class MeteredThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
+
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  public MeteredThreadPoolTaskExecutor() {
+    setRejectedExecutionHandler((runnable, executor) -> {
+      rejectedCount.incrementAndGet();
+      new ThreadPoolExecutor.AbortPolicy().rejectedExecution(runnable, executor);
+    });
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  public ExecutorStats getStats() {
+    ThreadPoolExecutor executor = getThreadPoolExecutor();
+    return ExecutorStats.builder()
+        .poolSize(executor.getPoolSize())
+        .activeCount(executor.getActiveCount())
+        .maxPoolSize(executor.getMaximumPoolSize())
+        .queueDepth(executor.getQueue().size())
+        .queueRemainingCapacity(executor.getQueue().remainingCapacity())
+        .completedTaskCount(executor.getCompletedTaskCount())
+        .rejectedCount(getRejectedCount())
+        .build();
+  }
+}
@@ -0,0 +1,121 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * The application roles a user holds, as a bitmask over {@link Role}.
+ *
+ * Computed once at login by the authorities mapper in {@link SecurityConfig}
+ * and kept in the HTTP session, so an authorization check tests one bit
+ * rather than walking the authority collection.
+ */
+public final class RoleSet implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Session attribute under which the login-time RoleSet is stored. */
+  public static final String SESSION_ATTRIBUTE = RoleSet.class.getName();
+
+  public static final RoleSet EMPTY = new RoleSet(0);
+
+  public enum Role {
+    USER, ADMIN, MEMBER;
+
+    private final String authority = "ROLE_" + name();
+
+    public String getAuthority() {
+      return authority;
+    }
+
+    /** The Role with the given name, with or without the ROLE_ prefix, or null. */
+    public static Role fromAuthority(String authority) {
+      if (authority == null) {
+        return null;
+      }
+      String name = authority.startsWith("ROLE_") ? authority.substring(5) : authority;
+      for (Role role : values()) {
+        if (role.name().equals(name)) {
+          return role;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final int bits;
+
+  private RoleSet(int bits) {
+    this.bits = bits;
+  }
+
+  public static RoleSet of(Collection<? extends GrantedAuthority> authorities) {
+    int bits = 0;
+    for (GrantedAuthority authority : authorities) {
+      Role role = Role.fromAuthority(authority.getAuthority());
+      if (role != null && authority.getAuthority().startsWith("ROLE_")) {
+        bits |= 1 << role.ordinal();
+      }
+    }
+    return bits == 0 ? EMPTY : new RoleSet(bits);
+  }
+
+  /**
+   * The roles of the given authentication: the RoleSet stored in the session
+   * at login when there is one, otherwise computed from its authorities.
+   */
+  public static RoleSet of(Authentication authentication) {
+    if (authentication == null) {
+      return EMPTY;
+    }
+    if (authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+      RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+      if (attributes != null) {
+        Object stored = attributes.getAttribute(SESSION_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+        if (stored instanceof RoleSet) {
+          return (RoleSet) stored;
+        }
+      }
+    }
+    return of(authentication.getAuthorities());
+  }
+
+  /** Stores this RoleSet in the current request's session, if there is a request. */
+  public void storeInSession() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes != null) {
+      attributes.setAttribute(SESSION_ATTRIBUTE, this, RequestAttributes.SCOPE_SESSION);
+    }
+  }
+
+  public boolean contains(Role role) {
+    return (bits & (1 << role.ordinal())) != 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof RoleSet && ((RoleSet) o).bits == bits;
+  }
+
+  @Override
+  public int hashCode() {
+    return bits;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("RoleSet[");
+    for (Role role : Role.values()) {
+      if (contains(role)) {
+        sb.append(sb.length() > 8 ? "," : "").append(role.name());
+      }
+    }
+    return sb.append(']').toString();
+  }
+}
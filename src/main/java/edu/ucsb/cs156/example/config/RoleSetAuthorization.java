@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.method.AbstractMethodSecurityMetadataSource;
+import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PostFilter;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreFilter;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.ClassUtils;
+
+import edu.ucsb.cs156.example.config.RoleSet.Role;
+
+/**
+ * Decides the <code>@PreAuthorize("hasRole('ROLE_X')")</code> checks on the
+ * controllers from the session's {@link RoleSet} instead of evaluating SpEL.
+ *
+ * {@link MetadataSource} recognises that exact form for a known {@link Role}
+ * and replaces the SpEL expression with a {@link RequiredRole} attribute,
+ * which {@link Voter} decides with a bit test on the session's
+ * {@link RoleSet}. Any other expression, or a method that also carries
+ * <code>@PreFilter</code>, <code>@PostAuthorize</code> or
+ * <code>@PostFilter</code>, is left to the regular SpEL-based handling.
+ */
+public final class RoleSetAuthorization {
+
+  private RoleSetAuthorization() {
+  }
+
+  public static final class RequiredRole implements ConfigAttribute {
+    private static final long serialVersionUID = 1L;
+
+    private final Role role;
+
+    public RequiredRole(Role role) {
+      this.role = role;
+    }
+
+    public Role getRole() {
+      return role;
+    }
+
+    /** Null so the stock RoleVoter and AuthenticatedVoter abstain. */
+    @Override
+    public String getAttribute() {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return "RequiredRole[" + role + "]";
+    }
+  }
+
+  public static class MetadataSource extends AbstractMethodSecurityMetadataSource {
+
+    private static final Pattern HAS_ROLE = Pattern.compile("^\\s*hasRole\\(\\s*'([A-Za-z_]+)'\\s*\\)\\s*$");
+
+    @Override
+    public Collection<ConfigAttribute> getAttributes(Method method, Class<?> targetClass) {
+      if (method.getDeclaringClass() == Object.class) {
+        return List.of();
+      }
+      Method specificMethod = ClassUtils.getMostSpecificMethod(method, targetClass);
+      if (hasOther(specificMethod)) {
+        return List.of();
+      }
+      PreAuthorize preAuthorize = AnnotationUtils.findAnnotation(specificMethod, PreAuthorize.class);
+      if (preAuthorize == null && targetClass != null) {
+        preAuthorize = AnnotationUtils.findAnnotation(targetClass, PreAuthorize.class);
+      }
+      Role role = preAuthorize == null ? null : roleOf(preAuthorize.value());
+      return role == null ? List.of() : List.of(new RequiredRole(role));
+    }
+
+    static Role roleOf(String expression) {
+      Matcher matcher = HAS_ROLE.matcher(expression);
+      return matcher.matches() ? Role.fromAuthority(matcher.group(1)) : null;
+    }
+
+    private static boolean hasOther(Method method) {
+      return AnnotationUtils.findAnnotation(method, PreFilter.class) != null
+          || AnnotationUtils.findAnnotation(method, PostAuthorize.class) != null
+          || AnnotationUtils.findAnnotation(method, PostFilter.class) != null;
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+      return null;
+    }
+  }
+
+  public static class Voter implements AccessDecisionVoter<MethodInvocation> {
+
+    @Override
+    public boolean supports(ConfigAttribute attribute) {
+      return attribute instanceof RequiredRole;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+      return MethodInvocation.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public int vote(Authentication authentication, MethodInvocation invocation,
+        Collection<ConfigAttribute> attributes) {
+      for (ConfigAttribute attribute : attributes) {
+        if (attribute instanceof RequiredRole) {
+          return RoleSet.of(authentication).contains(((RequiredRole) attribute).getRole())
+              ? ACCESS_GRANTED
+              : ACCESS_DENIED;
+        }
+      }
+      return ACCESS_ABSTAIN;
+    }
+  }
+}
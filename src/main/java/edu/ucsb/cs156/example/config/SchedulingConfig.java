@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * The pool that runs the application's own background work, such as the
+ * flushes of the review write-behind buffer.
+ *
+ * Services inject it by name (the STOMP broker defines a task scheduler of
+ * its own) and cancel their tasks in their <code>@PreDestroy</code> methods.
+ * Spring destroys those services before this bean, and then waits up to
+ * <code>app.background.awaitTerminationSeconds</code> for running tasks to
+ * finish.
+ */
+@Configuration
+public class SchedulingConfig {
+
+  public static final String BACKGROUND_TASK_SCHEDULER = "backgroundTaskScheduler";
+
+  @Value("${app.background.poolSize:4}")
+  private int poolSize;
+
+  @Value("${app.background.awaitTerminationSeconds:30}")
+  private int awaitTerminationSeconds;
+
+  @Bean(BACKGROUND_TASK_SCHEDULER)
+  public ThreadPoolTaskScheduler backgroundTaskScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(poolSize);
+    scheduler.setThreadNamePrefix("background-");
+    scheduler.setWaitForTasksToCompleteOnShutdown(true);
+    scheduler.setAwaitTerminationSeconds(awaitTerminationSeconds);
+    return scheduler;
+  }
+}
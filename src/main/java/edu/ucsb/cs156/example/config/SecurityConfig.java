@@ -17,7 +17,13 @@ import javax.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.method.MethodSecurityMetadataSource;
+import org.springframework.security.access.vote.AbstractAccessDecisionManager;
+import org.springframework.security.access.vote.AffirmativeBased;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -37,10 +43,32 @@ import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true)
 @Slf4j
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+  /**
+   * Method security that decides plain <code>hasRole('ROLE_X')</code>
+   * checks from the session's role bitmask; see {@link RoleSetAuthorization}.
+   */
+  @Configuration
+  @EnableGlobalMethodSecurity(prePostEnabled = true)
+  public static class MethodSecurityConfig extends GlobalMethodSecurityConfiguration {
+
+    @Override
+    protected MethodSecurityMetadataSource customMethodSecurityMetadataSource() {
+      return new RoleSetAuthorization.MetadataSource();
+    }
+
+    @Override
+    protected AccessDecisionManager accessDecisionManager() {
+      AbstractAccessDecisionManager defaults = (AbstractAccessDecisionManager) super.accessDecisionManager();
+      List<AccessDecisionVoter<?>> voters = new ArrayList<>();
+      voters.add(new RoleSetAuthorization.Voter());
+      voters.addAll(defaults.getDecisionVoters());
+      return new AffirmativeBased(voters);
+    }
+  }
+
   @Value("${app.admin.emails}")
   private final List<String> adminEmails = new ArrayList<String>();
 
@@ -91,6 +119,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         }
 
       });
+      RoleSet.of(mappedAuthorities).storeInSession();
       return mappedAuthorities;
     };
   }
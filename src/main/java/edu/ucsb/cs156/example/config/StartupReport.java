@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs how long startup took once the application is ready, broken down by
+ * startup phase and by the slowest beans.
+ *
+ * The breakdown comes from the {@link BufferingApplicationStartup} set in
+ * <code>ExampleApplication</code>; bean times are inclusive of the beans they
+ * depend on. When <code>app.startup.reportFile</code> is set the same report
+ * is written there as JSON, so each release build can record its startup
+ * time. With <code>app.startup.exitWhenReady=true</code> the application
+ * exits right after the report, which is how the class-data-sharing training
+ * run is made (see docs/fast-start.md).
+ */
+@Component
+@Slf4j
+public class StartupReport {
+
+  private static final String BEAN_STEP = "spring.beans.instantiate";
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Value("${app.startup.slowestBeans:15}")
+  private int slowestBeans;
+
+  @Value("${app.startup.reportFile:}")
+  private String reportFile;
+
+  @Value("${app.startup.exitWhenReady:false}")
+  private boolean exitWhenReady;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void report(ApplicationReadyEvent event) throws IOException {
+    ConfigurableApplicationContext context = event.getApplicationContext();
+    long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("jvmUptimeMillis", jvmUptimeMillis);
+
+    if (context.getApplicationStartup() instanceof BufferingApplicationStartup) {
+      StartupTimeline timeline = ((BufferingApplicationStartup) context.getApplicationStartup()).drainBufferedTimeline();
+      report.put("contextStartupMillis", Duration.between(timeline.getStartTime(), Instant.now()).toMillis());
+      report.put("phases", phases(timeline.getEvents()));
+      report.put("slowestBeans", slowestBeans(timeline.getEvents()));
+    }
+
+    log.info("Startup report: {}", objectMapper.writeValueAsString(report));
+    if (!reportFile.isBlank()) {
+      Path path = Paths.get(reportFile);
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+    }
+    if (exitWhenReady) {
+      log.info("app.startup.exitWhenReady is set; exiting");
+      System.exit(SpringApplication.exit(context));
+    }
+  }
+
+  private Map<String, Long> phases(List<TimelineEvent> events) {
+    return events.stream()
+        .filter(e -> !e.getStartupStep().getName().equals(BEAN_STEP))
+        .collect(Collectors.groupingBy(e -> e.getStartupStep().getName(), TreeMap::new,
+            Collectors.summingLong(e -> e.getDuration().toMillis())));
+  }
+
+  private Map<String, Long> slowestBeans(List<TimelineEvent> events) {
+    Map<String, Long> beans = new LinkedHashMap<>();
+    events.stream()
+        .filter(e -> e.getStartupStep().getName().equals(BEAN_STEP))
+        .sorted(Comparator.comparing(TimelineEvent::getDuration).reversed())
+        .limit(slowestBeans)
+        .forEach(e -> beans.put(beanName(e.getStartupStep()), e.getDuration().toMillis()));
+    return beans;
+  }
+
+  private String beanName(StartupStep step) {
+    for (StartupStep.Tag tag : step.getTags()) {
+      if (tag.getKey().equals("beanName")) {
+        return tag.getValue();
+      }
+    }
+    return "step-" + step.getId();
+  }
+}
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.config;
+
+import java.security.Principal;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Limits STOMP clients to what a push-only client needs: users logged in
+ * when they opened the WebSocket may subscribe to <code>/topic</code>
+ * destinations, and no client may send messages.
+ */
+public class StompSubscriptionInterceptor implements ChannelInterceptor {
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+    StompCommand command = accessor.getCommand();
+    if (command == StompCommand.SEND) {
+      throw new MessagingException(message, "Clients may only subscribe");
+    }
+    if (command == StompCommand.SUBSCRIBE) {
+      String destination = accessor.getDestination();
+      if (destination == null || !destination.startsWith("/topic/")) {
+        throw new MessagingException(message, "Cannot subscribe to %s".formatted(destination));
+      }
+      if (!isUser(accessor.getUser())) {
+        throw new MessagingException(message, "Log in to subscribe to %s".formatted(destination));
+      }
+    }
+    return message;
+  }
+
+  private static boolean isUser(Principal principal) {
+    return principal instanceof Authentication authentication
+        && authentication.isAuthenticated()
+        && RoleSet.of(authentication).contains(RoleSet.Role.USER);
+  }
+}
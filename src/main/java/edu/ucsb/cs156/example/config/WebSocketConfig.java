@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+/**
+ * STOMP over WebSocket at <code>/ws</code>, used to push changes to
+ * subscribed clients (see
+ * {@link edu.ucsb.cs156.example.services.MenuItemUpdatePublisher}).
+ *
+ * Messages published to a <code>/topic</code> destination are fanned out
+ * to its subscribers on the client outbound channel, which runs on its own
+ * bounded pool, so a publishing controller never waits on a client. Each
+ * session's sends also go through a buffer of at most
+ * <code>app.websocket.sendBufferSizeLimit</code> bytes: a session that
+ * falls that far behind, or whose send takes longer than
+ * <code>app.websocket.sendTimeLimitMillis</code>, is closed rather than
+ * holding up the pool. Only same-origin handshakes are accepted.
+ *
+ * @see <a href=
+ *      "https://docs.spring.io/spring-framework/docs/current/reference/html/web.html#websocket-stomp">https://docs.spring.io/spring-framework/docs/current/reference/html/web.html#websocket-stomp</a>
+ */
+
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+  @Value("${app.websocket.outbound.corePoolSize:4}")
+  private int corePoolSize;
+
+  @Value("${app.websocket.outbound.maxPoolSize:8}")
+  private int maxPoolSize;
+
+  @Value("${app.websocket.outbound.queueCapacity:10000}")
+  private int queueCapacity;
+
+  @Value("${app.websocket.sendBufferSizeLimit:524288}")
+  private int sendBufferSizeLimit;
+
+  @Value("${app.websocket.sendTimeLimitMillis:10000}")
+  private int sendTimeLimitMillis;
+
+  @Override
+  public void registerStompEndpoints(StompEndpointRegistry registry) {
+    registry.addEndpoint("/ws");
+  }
+
+  @Override
+  public void configureMessageBroker(MessageBrokerRegistry registry) {
+    registry.enableSimpleBroker("/topic");
+    registry.setApplicationDestinationPrefixes("/app");
+  }
+
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.interceptors(new StompSubscriptionInterceptor());
+  }
+
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor()
+        .corePoolSize(corePoolSize)
+        .maxPoolSize(maxPoolSize)
+        .queueCapacity(queueCapacity);
+  }
+
+  @Override
+  public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+    registration.setSendTimeLimit(sendTimeLimitMillis);
+  }
+}
@@ -1,16 +1,32 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.KeysetReader;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.ConflictException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import net.bytebuddy.implementation.bytecode.Throw;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -18,6 +34,12 @@ public abstract class ApiController {
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.stream.pageSize:500}")
+  private int streamPageSize;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
@@ -26,6 +48,65 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Streams every row returned by <code>reader</code> as newline-delimited
+   * JSON. Rows are read one keyset page at a time, so memory use is bounded
+   * by the page size; the next page is only read after the previous one has
+   * been written to a (possibly slow) client.
+   */
+  protected <T> StreamingResponseBody streamJsonLines(KeysetReader<T> reader) {
+    return outputStream -> {
+      try (JsonGenerator generator = createGenerator(outputStream)) {
+        generator.setRootValueSeparator(null);
+        writePages(reader, item -> {
+          generator.writeObject(item);
+          generator.writeRaw('\n');
+        }, generator);
+      }
+    };
+  }
+
+  /**
+   * Streams every row returned by <code>reader</code> as a single JSON
+   * array, without building the whole body in memory first.
+   */
+  protected <T> StreamingResponseBody streamJsonArray(KeysetReader<T> reader) {
+    return outputStream -> {
+      try (JsonGenerator generator = createGenerator(outputStream)) {
+        generator.writeStartArray();
+        writePages(reader, generator::writeObject, generator);
+        generator.writeEndArray();
+      }
+    };
+  }
+
+  private JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+    JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return generator;
+  }
+
+  private <T> void writePages(KeysetReader<T> reader, ItemWriter<T> writer, JsonGenerator generator)
+      throws IOException {
+    T last = null;
+    while (true) {
+      List<T> page = reader.readAfter(last, streamPageSize);
+      for (T item : page) {
+        writer.write(item);
+      }
+      generator.flush();
+      if (page.size() < streamPageSize) {
+        return;
+      }
+      last = page.get(page.size() - 1);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ItemWriter<T> {
+    void write(T item) throws IOException;
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -34,4 +115,49 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ BadRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ ConflictException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflictException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ ObjectOptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handleOptimisticLockingFailure(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ TaskRejectedException.class })
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public Object handleTaskRejectedException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", "Server is busy; please retry"
+    );
+  }
+
+  @ExceptionHandler({ DataIntegrityViolationException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleDataIntegrityViolation(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", "The change conflicts with existing records"
+    );
+  }
 }
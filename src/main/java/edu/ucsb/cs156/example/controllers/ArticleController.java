@@ -1,9 +1,15 @@
 
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -13,19 +19,29 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 @Api(description = "Article")
 @RequestMapping("/api/article")
@@ -36,23 +52,63 @@ public class ArticleController extends ApiController {
     @Autowired
     ArticleRepository articleRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<Article, Long> articleCrud;
+
+    @PostConstruct
+    void initCrud() {
+        articleCrud = new EntityCrud<>(Article.class, articleRepository, CrudOptions.builder()
+                .excludedFromUpdate(Set.of("deletedAt"))
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @ApiOperation(value = "List all article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Article> allArticle() {
-        Iterable<Article> titles = articleRepository.findAll();
-        return titles;
+    public Callable<Iterable<?>> allArticle(
+            @ApiParam("view (full or summary; summary omits explanation)") @RequestParam(defaultValue = "full") String view,
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(Article.class, fields);
+        }
+        if (view.equals("summary")) {
+            return () -> articleRepository.findAllProjectedBy();
+        }
+        return () -> articleCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all articles as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamArticles() {
+        return streamJsonLines(articleCrud.keysetReader(articleRepository::findByIdGreaterThanOrderById, Long.MIN_VALUE));
     }
 
     @ApiOperation(value = "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Article getById(
+    public ResponseEntity<Article> getById(
             @ApiParam("id") @RequestParam Long id) {
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
+        Article article = articleCrud.findById(id);
+        return ResponseEntity.ok().eTag(articleCrud.etag(article)).body(article);
+    }
 
-        return article;
+    @ApiOperation(value = "Get several articles by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Article, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return articleCrud.findBatch(ids);
     }
 
     @ApiOperation(value = "Create a new article")
@@ -78,7 +134,7 @@ public class ArticleController extends ApiController {
         article.setEmail(email);
         article.setDateAdded(dateAdded);
 
-        Article savedArticle = articleRepository.save(article);
+        Article savedArticle = articleCrud.create(article);
 
         return savedArticle;
     }
@@ -88,31 +144,32 @@ public class ArticleController extends ApiController {
     @DeleteMapping("")
     public Object deleteArticle(
             @ApiParam("id") @RequestParam Long id) {
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
-
-        articleRepository.delete(article);
+        articleCrud.delete(id);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Restore a deleted article that has not been purged yet")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/restore")
+    public Object restoreArticle(
+            @ApiParam("id") @RequestParam Long id) {
+        transactionOperations.executeWithoutResult(status -> {
+            if (articleRepository.restoreById(id) == 0) {
+                throw new EntityNotFoundException(Article.class, id);
+            }
+            changeFeedService.record("article", id, ChangeType.INSERT);
+        });
+        return genericMessage("Article with id %s restored".formatted(id));
+    }
+
     @ApiOperation(value = "Update a single article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public Article updateArticle(
+    public ResponseEntity<Article> updateArticle(
             @ApiParam("id") @RequestParam Long id,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid Article incoming) {
-
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
-
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
-
-        articleRepository.save(article);
-
-        return article;
+        Article article = articleCrud.update(id, incoming, ifMatch);
+        return ResponseEntity.ok().eTag(articleCrud.etag(article)).body(article);
     }
 }
@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.config.MeteredThreadPoolTaskExecutor;
+import edu.ucsb.cs156.example.config.RoleSet;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.Bootstrap;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.SystemInfoService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * Everything the frontend needs on page load in one request: the current
+ * user and roles, system info (for admins), dining commons and
+ * organizations.
+ *
+ * The two reference lists are read in parallel on the controller executor
+ * while the current user is resolved on the request thread. The document
+ * carries an ETag, so a reload with <code>If-None-Match</code> gets a 304
+ * without a body.
+ */
+@Api(description = "Page-load bootstrap document")
+@RequestMapping("/api/bootstrap")
+@RestController
+public class BootstrapController extends ApiController {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  SystemInfoService systemInfoService;
+
+  @Autowired
+  MeteredThreadPoolTaskExecutor controllerTaskExecutor;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Value("${app.bootstrap.maxAgeSeconds:0}")
+  long maxAgeSeconds;
+
+  @ApiOperation(value = "Get current user, system info, dining commons and organizations in one document", response = Bootstrap.class)
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<byte[]> getBootstrap() throws JsonProcessingException {
+    CompletableFuture<Iterable<UCSBDiningCommons>> diningCommons =
+        CompletableFuture.supplyAsync(ucsbDiningCommonsRepository::findAll, controllerTaskExecutor);
+    CompletableFuture<Iterable<UCSBOrganization>> organizations =
+        CompletableFuture.supplyAsync(ucsbOrganizationRepository::findAll, controllerTaskExecutor);
+
+    CurrentUser currentUser = getCurrentUser();
+    boolean admin = RoleSet.of(SecurityContextHolder.getContext().getAuthentication()).contains(RoleSet.Role.ADMIN);
+
+    Bootstrap bootstrap = Bootstrap.builder()
+        .currentUser(currentUser)
+        .systemInfo(admin ? systemInfoService.getSystemInfo() : null)
+        .diningCommons(join(diningCommons))
+        .organizations(join(organizations))
+        .build();
+
+    byte[] body = mapper.writeValueAsBytes(bootstrap);
+    return ResponseEntity.ok()
+        .eTag(DigestUtils.md5DigestAsHex(body))
+        .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate().mustRevalidate())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.ChangesPage;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Incremental sync: clients that keep a local copy of the entity tables
+ * read the changes since the last <code>seq</code> they saw, then fetch
+ * the inserted and updated rows with the <code>/batch</code> endpoints and
+ * drop the deleted ones.
+ */
+@Api(description = "Change feed of the entity tables")
+@RequestMapping("/api/changes")
+@RestController
+public class ChangeFeedController extends ApiController {
+
+    public static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @ApiOperation(value = "Get the inserts, updates and deletes after a change sequence number, oldest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("")
+    public ChangesPage getChanges(
+            @ApiParam("since (seq of the last change already seen; 0 for all)") @RequestParam(defaultValue = "0") long since,
+            @ApiParam("limit (at most " + MAX_LIMIT + ")") @RequestParam(defaultValue = "500") int limit) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and %d".formatted(MAX_LIMIT));
+        }
+        return changeFeedService.changesSince(since, limit);
+    }
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.config.MeteredThreadPoolTaskExecutor;
+import edu.ucsb.cs156.example.models.ExecutorStats;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Api(description = "Async executor statistics (admin only)")
+@RequestMapping("/api/admin/executor")
+@RestController
+public class ExecutorController extends ApiController {
+
+    @Autowired
+    MeteredThreadPoolTaskExecutor controllerTaskExecutor;
+
+    @ApiOperation(value = "Get queue depth and rejection counts for the async controller executor")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public ExecutorStats getExecutorStats() {
+        return controllerTaskExecutor.getStats();
+    }
+}
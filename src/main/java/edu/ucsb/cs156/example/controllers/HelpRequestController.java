@@ -1,27 +1,41 @@
 package edu.ucsb.cs156.example.controllers;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.HelpRequestStats;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.HelpRequestStatsService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -36,21 +50,72 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<HelpRequest, Long> helpRequestCrud;
+
+    @PostConstruct
+    void initCrud() {
+        helpRequestCrud = new EntityCrud<>(HelpRequest.class, helpRequestRepository, CrudOptions.builder()
+                .skipNullsOnUpdate(true)
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
+    @Autowired
+    HelpRequestStatsService helpRequestStatsService;
+
     @ApiOperation(value = "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> helpRequest = helpRequestRepository.findAll();
-        return helpRequest;
+    public Callable<Iterable<?>> allHelpRequests(
+            @ApiParam("view (full or summary; summary omits explanation)") @RequestParam(defaultValue = "full") String view,
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(HelpRequest.class, fields);
+        }
+        if (view.equals("summary")) {
+            return () -> helpRequestRepository.findAllProjectedBy();
+        }
+        return () -> helpRequestCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all help requests as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamHelpRequests() {
+        return streamJsonLines(helpRequestCrud.keysetReader(helpRequestRepository::findByIdGreaterThanOrderById, Long.MIN_VALUE));
     }
 
     @ApiOperation(value = "Get a single help request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public HelpRequest getById(@ApiParam("id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id).
-            orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-        return helpRequest;
+    public ResponseEntity<HelpRequest> getById(@ApiParam("id") @RequestParam Long id) {
+        HelpRequest helpRequest = helpRequestCrud.findById(id);
+        return ResponseEntity.ok().eTag(helpRequestCrud.etag(helpRequest)).body(helpRequest);
+    }
+
+    @ApiOperation(value = "Get several help requests by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<HelpRequest, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return helpRequestCrud.findBatch(ids);
+    }
+
+    @ApiOperation(value = "Time-to-solve over the recent window and open backlog, overall (teamId null) and per team")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/stats")
+    public List<HelpRequestStats> getStats() {
+        return helpRequestStatsService.stats();
     }
 
     @ApiOperation(value = "Create a new help request")
@@ -76,7 +141,8 @@ public class HelpRequestController extends ApiController {
         helpRequest.setRequestTime(requestTime);
         helpRequest.setExplanation(explanation);
 
-        HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        HelpRequest savedHelpRequest = helpRequestCrud.create(helpRequest);
+        helpRequestStatsService.created(savedHelpRequest);
 
         return savedHelpRequest;
     }
@@ -86,32 +152,29 @@ public class HelpRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteHelpRequest(
             @ApiParam("id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+        HelpRequest deleted = helpRequestCrud.delete(id);
+        helpRequestStatsService.deleted(deleted);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
     @ApiOperation(value = "Update a single request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public HelpRequest updateHelpRequest(
+    public ResponseEntity<HelpRequest> updateHelpRequest(
             @ApiParam("id") @RequestParam Long id,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid HelpRequest incoming) {
-
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-        
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail() != null ? incoming.getRequesterEmail() : helpRequest.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId() != null ? incoming.getTeamId() : helpRequest.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom() != null ? incoming.getTableOrBreakoutRoom() : helpRequest.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime() != null ? incoming.getRequestTime() : helpRequest.getRequestTime());
-        helpRequest.setExplanation(incoming.getExplanation() != null ? incoming.getExplanation() : helpRequest.getExplanation());
-        helpRequest.setSolved(incoming.getSolved());
-
-        helpRequestRepository.save(helpRequest);
-
-        return helpRequest;
+        // solvedTime is set here, not by the client: when solved first becomes true
+        HelpRequest before = new HelpRequest();
+        HelpRequest helpRequest = helpRequestCrud.update(id, incoming, ifMatch, stored -> {
+            before.setTeamId(stored.getTeamId());
+            before.setSolved(stored.getSolved());
+            LocalDateTime solvedTime = !incoming.getSolved() ? null
+                    : stored.getSolved() ? stored.getSolvedTime() : LocalDateTime.now();
+            stored.setSolvedTime(solvedTime);
+            incoming.setSolvedTime(solvedTime);
+        });
+        helpRequestStatsService.updated(before.getTeamId(), before.getSolved(), helpRequest);
+        return ResponseEntity.ok().eTag(helpRequestCrud.etag(helpRequest)).body(helpRequest);
     }
 }
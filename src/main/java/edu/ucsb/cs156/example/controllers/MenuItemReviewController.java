@@ -1,79 +1,217 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.MenuItemReviewPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemReviewValidator;
+import edu.ucsb.cs156.example.services.MenuItemReviewWriteBehindService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 @Api(description = "MenuItemReview")
 @RequestMapping("/api/menuitemreview")
 @RestController
 @Slf4j
 public class MenuItemReviewController extends ApiController {
+    private static final int MAX_BY_ITEM_PAGE_SIZE = 100;
+
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<MenuItemReview, Long> menuItemReviewCrud;
+
+    @PostConstruct
+    void initCrud() {
+        menuItemReviewCrud = new EntityCrud<>(MenuItemReview.class, menuItemReviewRepository, CrudOptions.builder()
+                .excludedFromUpdate(Set.of("menuItem"))
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+    @Autowired
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
+    @Autowired
+    MenuItemReviewWriteBehindService menuItemReviewWriteBehindService;
+
     @ApiOperation(value = "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allReviews() {
-        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-        return reviews;
+    public Callable<Iterable<?>> allReviews(
+            @ApiParam("view (full or summary; summary omits comments)") @RequestParam(defaultValue = "full") String view,
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(MenuItemReview.class, fields);
+        }
+        if (view.equals("summary")) {
+            return () -> menuItemReviewRepository.findAllProjectedBy();
+        }
+        return () -> menuItemReviewCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all menu item reviews as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamReviews() {
+        return streamJsonLines(menuItemReviewCrud.keysetReader(menuItemReviewRepository::findByItemidGreaterThanOrderByItemid, Long.MIN_VALUE));
     }
 
     @ApiOperation(value = "Get a single menu item review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public MenuItemReview getById(
+    public ResponseEntity<MenuItemReview> getById(
             @ApiParam("itemid") @RequestParam Long itemid) {
-        MenuItemReview reviews = menuItemReviewRepository.findById(itemid)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, itemid));
+        MenuItemReview menuItemReview = menuItemReviewCrud.findById(itemid);
+        return ResponseEntity.ok().eTag(menuItemReviewCrud.etag(menuItemReview)).body(menuItemReview);
+    }
+
+    @ApiOperation(value = "Get several menu item reviews by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<MenuItemReview, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return menuItemReviewCrud.findBatch(ids);
+    }
+
+    @ApiOperation(value = "Page through the reviews of one menu item, newest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/byitem")
+    public MenuItemReviewPage getByItem(
+            @ApiParam("menuItemId") @RequestParam Long menuItemId,
+            @ApiParam("cursor (nextCursor from the previous page; omit for the first page)") @RequestParam(required = false) String cursor,
+            @ApiParam("size (reviews per page, at most 100)") @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_BY_ITEM_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and %d".formatted(MAX_BY_ITEM_PAGE_SIZE));
+        }
+        // one extra row tells us whether there is a next page
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<MenuItemReview> reviews;
+        if (cursor == null) {
+            reviews = menuItemReviewRepository
+                    .findByMenuItemIdAndDateReviewedNotNullOrderByDateReviewedDescItemidDesc(menuItemId, limit);
+        } else {
+            String[] position = decodeCursor(cursor);
+            reviews = menuItemReviewRepository.findPageAfter(menuItemId,
+                    LocalDateTime.parse(position[0]), Long.parseLong(position[1]), limit);
+        }
+        String nextCursor = null;
+        if (reviews.size() > size) {
+            reviews = reviews.subList(0, size);
+            nextCursor = encodeCursor(reviews.get(size - 1));
+        }
+        return new MenuItemReviewPage(reviews, nextCursor);
+    }
+
+    private static String encodeCursor(MenuItemReview last) {
+        String position = last.getDateReviewed() + "|" + last.getItemid();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return reviews;
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length == 2) {
+                LocalDateTime.parse(position[0]);
+                Long.parseLong(position[1]);
+                return position;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // fall through
+        }
+        throw new BadRequestException("cursor %s is not valid".formatted(cursor));
+    }
+
+    private void checkMenuItem(Long menuItemId) {
+        if (menuItemId != null && !ucsbDiningCommonsMenuItemRepository.existsById(menuItemId)) {
+            throw new BadRequestException("menuItemId %d does not exist".formatted(menuItemId));
+        }
     }
 
     @ApiOperation(value = "Create a new menu item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
-    public MenuItemReview postMenuItemReview(
+    public ResponseEntity<?> postMenuItemReview(
         @ApiParam("reviewerEmail") @RequestParam String reviewerEmail,
         @ApiParam("stars") @RequestParam int stars,
         @ApiParam("comments") @RequestParam String comments,
-        @ApiParam("dateReviewed (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("dateReviewed") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateReviewed)
-            throws JsonProcessingException {
+        @ApiParam("dateReviewed (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("dateReviewed") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateReviewed,
+        @ApiParam("menuItemId (the UCSBDiningCommonsMenuItem being reviewed)") @RequestParam(required = false) Long menuItemId)
+            throws IOException {
         log.info("dateReviewed={}", dateReviewed);
+        checkMenuItem(menuItemId);
 
         MenuItemReview review = new MenuItemReview();
 
+        review.setMenuItemId(menuItemId);
+
         review.setReviewerEmail(reviewerEmail);
         review.setStars(stars);
         review.setDateReviewed(dateReviewed);
         review.setComments(comments);
+        MenuItemReviewValidator.validate(review);
 
-        MenuItemReview savedMenuItemReviews= menuItemReviewRepository.save(review);
+        if (menuItemReviewWriteBehindService.isEnabled()) {
+            return ResponseEntity.accepted().body(menuItemReviewWriteBehindService.submit(review));
+        }
 
-        return savedMenuItemReviews;
+        MenuItemReview savedMenuItemReviews= menuItemReviewCrud.create(review);
+        menuItemLeaderboardService.reviewAdded(savedMenuItemReviews);
+
+        return ResponseEntity.ok(savedMenuItemReviews);
     }
     
     @ApiOperation(value = "Delete a Menu Item Review")
@@ -81,31 +219,26 @@ public class MenuItemReviewController extends ApiController {
     @DeleteMapping("")
     public Object deleteMenuItemReviews(
             @ApiParam("itemid") @RequestParam Long itemid) {
-        MenuItemReview review = menuItemReviewRepository.findById(itemid)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, itemid));
-
-        menuItemReviewRepository.delete(review);
+        MenuItemReview deleted = menuItemReviewCrud.delete(itemid);
+        menuItemLeaderboardService.reviewRemoved(deleted);
         return genericMessage("MenuItemReview with id %s deleted".formatted(itemid));
     }
 
     @ApiOperation(value = "Update a single menu item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public MenuItemReview updateMenuItemReview(
+    public ResponseEntity<MenuItemReview> updateMenuItemReview(
             @ApiParam("itemid") @RequestParam Long itemid,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid MenuItemReview incoming) {
-
-        MenuItemReview review = menuItemReviewRepository.findById(itemid)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, itemid));
-
-        review.setReviewerEmail(incoming.getReviewerEmail());
-        review.setStars(incoming.getStars());
-        review.setDateReviewed(incoming.getDateReviewed());
-        review.setComments(incoming.getComments());
-
-        menuItemReviewRepository.save(review);
-
-        return review;
+        checkMenuItem(incoming.getMenuItemId());
+        MenuItemReview before = new MenuItemReview();
+        MenuItemReview menuItemReview = menuItemReviewCrud.update(itemid, incoming, ifMatch, stored -> {
+            before.setMenuItemId(stored.getMenuItemId());
+            before.setStars(stored.getStars());
+        });
+        menuItemLeaderboardService.reviewChanged(before.getMenuItemId(), before.getStars(), menuItemReview);
+        return ResponseEntity.ok().eTag(menuItemReviewCrud.etag(menuItemReview)).body(menuItemReview);
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.Recommendation;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.RecommendationRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.RecommendationExportService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,19 +18,31 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
 
 @Api(description = "recommendations")
 @RequestMapping("/api/Recommendation")
@@ -35,23 +53,124 @@ public class RecommendationController extends ApiController {
     @Autowired
     RecommendationRepository recommendationRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<Recommendation, Long> recommendationCrud;
+
+    @PostConstruct
+    void initCrud() {
+        recommendationCrud = new EntityCrud<>(Recommendation.class, recommendationRepository, CrudOptions.builder()
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
+    @Autowired
+    RecommendationExportService recommendationExportService;
+
     @ApiOperation(value = "List all recommendations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Recommendation> allRecommendations() {
-        Iterable<Recommendation> recommendations = recommendationRepository.findAll();
-        return recommendations;
+    public Callable<Iterable<?>> allRecommendations(
+            @ApiParam("view (full or summary; summary omits explanation)") @RequestParam(defaultValue = "full") String view,
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(Recommendation.class, fields);
+        }
+        if (view.equals("summary")) {
+            return () -> recommendationRepository.findAllProjectedBy();
+        }
+        return () -> recommendationCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all recommendations as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamRecommendations() {
+        return streamJsonLines(recommendationCrud.keysetReader(recommendationRepository::findByIdGreaterThanOrderById, Long.MIN_VALUE));
+    }
+
+    @ApiOperation(value = "Export recommendations as CSV or newline-delimited JSON, gzipped when the client accepts it")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecommendations(
+            @ApiParam("format (csv or jsonl)") @RequestParam(defaultValue = "csv") String format,
+            @ApiParam("professorEmail (optional)") @RequestParam(required = false) String professorEmail,
+            @ApiParam("from (optional earliest dateRequested, inclusive)") @RequestParam(required = false) LocalDateTime from,
+            @ApiParam("to (optional latest dateRequested, exclusive)") @RequestParam(required = false) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        RecommendationExportService.Format exportFormat;
+        MediaType contentType;
+        switch (format) {
+            case "csv":
+                exportFormat = RecommendationExportService.Format.CSV;
+                contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+                break;
+            case "jsonl":
+                exportFormat = RecommendationExportService.Format.JSONL;
+                contentType = MediaType.APPLICATION_NDJSON;
+                break;
+            default:
+                throw new BadRequestException("format must be csv or jsonl");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"recommendations.%s\"".formatted(format))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            StreamingResponseBody body = outputStream -> recommendationExportService.export(professorEmail, from, to,
+                    exportFormat, outputStream);
+            return response.body(body);
+        }
+        StreamingResponseBody body = outputStream -> {
+            // sync flush, so each batch the export flushes reaches the client
+            GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 8192, true);
+            recommendationExportService.export(professorEmail, from, to, exportFormat, gzipStream);
+            gzipStream.finish();
+        };
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     @ApiOperation(value = "Get a single Recommendation")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Recommendation getById(
+    public ResponseEntity<Recommendation> getById(
             @ApiParam("id") @RequestParam Long id) {
-        Recommendation recommendation = recommendationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Recommendation.class, id));
+        Recommendation recommendation = recommendationCrud.findById(id);
+        return ResponseEntity.ok().eTag(recommendationCrud.etag(recommendation)).body(recommendation);
+    }
 
-        return recommendation;
+    @ApiOperation(value = "Get several recommendations by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Recommendation, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return recommendationCrud.findBatch(ids);
     }
 
     @ApiOperation(value = "Create a new recommendation")
@@ -74,7 +193,7 @@ public class RecommendationController extends ApiController {
         recommendation.setDateNeeded(dateNeeded);
         recommendation.setDone(done);
 
-        Recommendation savedRecommendation = recommendationRepository.save(recommendation);
+        Recommendation savedRecommendation = recommendationCrud.create(recommendation);
 
         return savedRecommendation;
     }
@@ -84,32 +203,18 @@ public class RecommendationController extends ApiController {
     @DeleteMapping("")
     public Object deleteRecommendation(
             @ApiParam("id") @RequestParam Long id) {
-        Recommendation recommendation = recommendationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Recommendation.class, id));
-
-        recommendationRepository.delete(recommendation);
+        recommendationCrud.delete(id);
         return genericMessage("Recommendation with id %s deleted".formatted(id));
     }
 
     @ApiOperation(value = "Update a single Recommendation")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public Recommendation updateRecommendation(
+    public ResponseEntity<Recommendation> updateRecommendation(
             @ApiParam("id") @RequestParam Long id,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid Recommendation incoming) {
-
-        Recommendation recommendation = recommendationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Recommendation.class, id));
-
-        recommendation.setRequesterEmail(incoming.getRequesterEmail());
-        recommendation.setProfessorEmail(incoming.getProfessorEmail());
-        recommendation.setExplanation(incoming.getExplanation());
-        recommendation.setDateRequested(incoming.getDateRequested());
-        recommendation.setDateNeeded(incoming.getDateNeeded());
-        recommendation.setDone(incoming.getDone());
-
-        recommendationRepository.save(recommendation);
-
-        return recommendation;
+        Recommendation recommendation = recommendationCrud.update(id, incoming, ifMatch);
+        return ResponseEntity.ok().eTag(recommendationCrud.etag(recommendation)).body(recommendation);
     }
 }
@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.UCSBDate;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,19 +16,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 @Api(description = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -35,23 +48,58 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<UCSBDate, Long> ucsbDateCrud;
+
+    @PostConstruct
+    void initCrud() {
+        ucsbDateCrud = new EntityCrud<>(UCSBDate.class, ucsbDateRepository, CrudOptions.builder()
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @ApiOperation(value = "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public Callable<Iterable<?>> allUCSBDates(
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(UCSBDate.class, fields);
+        }
+        return () -> ucsbDateCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all ucsb dates as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamUCSBDates() {
+        return streamJsonLines(ucsbDateCrud.keysetReader(ucsbDateRepository::findByIdGreaterThanOrderById, Long.MIN_VALUE));
     }
 
     @ApiOperation(value = "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDate getById(
+    public ResponseEntity<UCSBDate> getById(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        UCSBDate ucsbDate = ucsbDateCrud.findById(id);
+        return ResponseEntity.ok().eTag(ucsbDateCrud.etag(ucsbDate)).body(ucsbDate);
+    }
 
-        return ucsbDate;
+    @ApiOperation(value = "Get several dates by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDate, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return ucsbDateCrud.findBatch(ids);
     }
 
     @ApiOperation(value = "Create a new date")
@@ -73,7 +121,7 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setName(name);
         ucsbDate.setLocalDateTime(localDateTime);
 
-        UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        UCSBDate savedUcsbDate = ucsbDateCrud.create(ucsbDate);
 
         return savedUcsbDate;
     }
@@ -83,29 +131,18 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        ucsbDateCrud.delete(id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
     @ApiOperation(value = "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDate updateUCSBDate(
+    public ResponseEntity<UCSBDate> updateUCSBDate(
             @ApiParam("id") @RequestParam Long id,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid UCSBDate incoming) {
-
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
-
-        ucsbDateRepository.save(ucsbDate);
-
-        return ucsbDate;
+        UCSBDate ucsbDate = ucsbDateCrud.update(id, incoming, ifMatch);
+        return ResponseEntity.ok().eTag(ucsbDateCrud.etag(ucsbDate)).body(ucsbDate);
     }
 }
@@ -1,26 +1,53 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.ConflictException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportJobStatus;
+import edu.ucsb.cs156.example.models.TopMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.DiningCommonsDetailService;
+import edu.ucsb.cs156.example.services.MenuItemImportService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemUpdatePublisher;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 
 @Api(description = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
@@ -31,23 +58,85 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    MenuItemReviewRepository menuItemReviewRepository;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<UCSBDiningCommonsMenuItem, Long> ucsbDiningCommonsMenuItemCrud;
+
+    @PostConstruct
+    void initCrud() {
+        ucsbDiningCommonsMenuItemCrud = new EntityCrud<>(UCSBDiningCommonsMenuItem.class, ucsbDiningCommonsMenuItemRepository, CrudOptions.builder()
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
+    @Autowired
+    DiningCommonsDetailService diningCommonsDetailService;
+
+    @Autowired
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
+    @Autowired
+    MenuItemUpdatePublisher menuItemUpdatePublisher;
+
+    @Autowired
+    MenuItemImportService menuItemImportService;
+
     @ApiOperation(value = "List all ucsb dining commons menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allCommonss() {
-        Iterable<UCSBDiningCommonsMenuItem> commons = ucsbDiningCommonsMenuItemRepository.findAll();
-        return commons;
+    public Callable<Iterable<?>> allCommonss(
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(UCSBDiningCommonsMenuItem.class, fields);
+        }
+        return () -> ucsbDiningCommonsMenuItemCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all ucsb dining commons menu items as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamMenuItems() {
+        return streamJsonLines(ucsbDiningCommonsMenuItemCrud.keysetReader(ucsbDiningCommonsMenuItemRepository::findByIdGreaterThanOrderById, Long.MIN_VALUE));
     }
 
     @ApiOperation(value = "Get a single menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommonsMenuItem getById(
+    public ResponseEntity<UCSBDiningCommonsMenuItem> getById(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem commons = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemCrud.findById(id);
+        return ResponseEntity.ok().eTag(ucsbDiningCommonsMenuItemCrud.etag(menuItem)).body(menuItem);
+    }
 
-        return commons;
+    @ApiOperation(value = "Get several menu items by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommonsMenuItem, Long> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<Long> ids) {
+        return ucsbDiningCommonsMenuItemCrud.findBatch(ids);
+    }
+
+    @ApiOperation(value = "Get the best-rated menu items, overall or in one commons")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/top")
+    public List<TopMenuItem> getTop(
+            @ApiParam("commons (optional dining commons code)") @RequestParam(required = false) String commons,
+            @ApiParam("n (number of items, at most 100)") @RequestParam(defaultValue = "10") int n) {
+        if (n < 1 || n > 100) {
+            throw new BadRequestException("n must be between 1 and 100");
+        }
+        return menuItemLeaderboardService.top(commons, n);
     }
 
     @ApiOperation(value = "Create a new menu item")
@@ -65,7 +154,9 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         commons.setName(name);
         commons.setStation(station);
 
-        UCSBDiningCommonsMenuItem savedCommons = ucsbDiningCommonsMenuItemRepository.save(commons);
+        UCSBDiningCommonsMenuItem savedCommons = ucsbDiningCommonsMenuItemCrud.create(commons);
+        diningCommonsDetailService.evict(diningCommonsCode);
+        menuItemUpdatePublisher.created(savedCommons);
 
         return savedCommons;
     }
@@ -75,30 +166,55 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem commons = ucsbDiningCommonsMenuItemRepository.findById(id) // HERE
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(commons);
+        if (menuItemReviewRepository.existsByMenuItemId(id)) {
+            throw new ConflictException(
+                    "UCSBDiningCommonsMenuItem with id %s still has reviews and cannot be deleted".formatted(id));
+        }
+        UCSBDiningCommonsMenuItem deleted = ucsbDiningCommonsMenuItemCrud.delete(id);
+        diningCommonsDetailService.evict(deleted.getDiningCommonsCode());
+        menuItemLeaderboardService.menuItemRemoved(id);
+        menuItemUpdatePublisher.deleted(deleted);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
     @ApiOperation(value = "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDiningCommonsMenuItem updateCommons(
+    public ResponseEntity<UCSBDiningCommonsMenuItem> updateCommons(
             @ApiParam("id") @RequestParam Long id,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
+        UCSBDiningCommonsMenuItem before = new UCSBDiningCommonsMenuItem();
+        UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemCrud.update(id, incoming, ifMatch,
+                stored -> before.setDiningCommonsCode(stored.getDiningCommonsCode()));
+        // the item may have moved between commons, so drop every cached detail
+        diningCommonsDetailService.evictAll();
+        menuItemLeaderboardService.menuItemChanged(menuItem);
+        menuItemUpdatePublisher.updated(before.getDiningCommonsCode(), menuItem);
+        return ResponseEntity.ok().eTag(ucsbDiningCommonsMenuItemCrud.etag(menuItem)).body(menuItem);
+    }
 
-        UCSBDiningCommonsMenuItem commons = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-
-        commons.setDiningCommonsCode(incoming.getDiningCommonsCode());
-        commons.setName(incoming.getName());  
-        commons.setStation(incoming.getStation());
+    @ApiOperation(value = "Start a background import of menu items from a CSV file with diningCommonsCode, name and station columns")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobStatus> startImport(
+            @ApiParam("file (CSV with a header line)") @RequestPart("file") MultipartFile file) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(menuItemImportService.start(file));
+    }
 
-        ucsbDiningCommonsMenuItemRepository.save(commons);
+    @ApiOperation(value = "Get the progress and line errors of a menu item import")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/import")
+    public ImportJobStatus getImport(
+            @ApiParam("jobId") @RequestParam String jobId) {
+        return menuItemImportService.status(jobId);
+    }
 
-        return commons;
+    @ApiOperation(value = "Cancel a menu item import after the batch in progress")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/import")
+    public ImportJobStatus cancelImport(
+            @ApiParam("jobId") @RequestParam String jobId) {
+        return menuItemImportService.cancel(jobId);
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,36 @@
 package edu.ucsb.cs156.example.controllers;
 
+import javax.annotation.PostConstruct;
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import edu.ucsb.cs156.example.crud.CrudOptions;
+import edu.ucsb.cs156.example.crud.EntityCrud;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -30,23 +45,63 @@ public class UCSBOrganizationController extends ApiController{
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Value("${app.crud.cacheReads.ucsborganization:false}")
+    boolean cacheReads;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    EntityCrud<UCSBOrganization, String> ucsbOrganizationCrud;
+
+    @PostConstruct
+    void initCrud() {
+        ucsbOrganizationCrud = new EntityCrud<>(UCSBOrganization.class, ucsbOrganizationRepository, CrudOptions.builder()
+                .copyIdOnUpdate(true)
+                .cacheReads(cacheReads)
+                .changeFeed(changeFeedService)
+                .transactions(transactionOperations)
+                .build());
+    }
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @ApiOperation(value = "List all UCSB organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public Callable<Iterable<?>> allOrganizations(
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return () -> sparseFieldsetService.findAll(UCSBOrganization.class, fields);
+        }
+        return () -> ucsbOrganizationCrud.findAll();
+    }
+
+    @ApiOperation(value = "Stream all UCSB organizations as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamOrganizations() {
+        return streamJsonLines(ucsbOrganizationCrud.keysetReader(ucsbOrganizationRepository::findByOrgCodeGreaterThanOrderByOrgCode, ""));
     }
 
     @ApiOperation(value = "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBOrganization getById(
+    public ResponseEntity<UCSBOrganization> getById(
             @ApiParam("orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        UCSBOrganization organization = ucsbOrganizationCrud.findById(orgCode);
+        return ResponseEntity.ok().eTag(ucsbOrganizationCrud.etag(organization)).body(organization);
+    }
 
-        return organization;
+    @ApiOperation(value = "Get several organizations by id with one query, in the order requested")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBOrganization, String> getBatch(
+            @ApiParam("ids (comma separated; unknown ids are null in results and listed in missing)") @RequestParam List<String> ids) {
+        return ucsbOrganizationCrud.findBatch(ids);
     }
 
     @ApiOperation(value = "Create a new organization")
@@ -67,7 +122,7 @@ public class UCSBOrganizationController extends ApiController{
         organization.setOrgTranslation(orgTranslation);
         organization.setInactive(inactive);
 
-        UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+        UCSBOrganization savedOrganization = ucsbOrganizationCrud.create(organization);
 
         return savedOrganization;
     }
@@ -75,22 +130,12 @@ public class UCSBOrganizationController extends ApiController{
     @ApiOperation(value = "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBOrganization updateOrganization(
+    public ResponseEntity<UCSBOrganization> updateOrganization(
             @ApiParam("code") @RequestParam String orgCode,
+            @ApiParam("If-Match (optional ETag from an earlier GET or PUT)") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid UCSBOrganization incoming) {
-
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-        
-        org.setOrgCode(incoming.getOrgCode());
-        org.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        org.setOrgTranslation(incoming.getOrgTranslation());
-        org.setInactive(incoming.getInactive());
-
-
-        ucsbOrganizationRepository.save(org);
-
-        return org;
+        UCSBOrganization organization = ucsbOrganizationCrud.update(orgCode, incoming, ifMatch);
+        return ResponseEntity.ok().eTag(ucsbOrganizationCrud.etag(organization)).body(organization);
     }
 
     @ApiOperation(value = "Delete a UCSBOrganization")
@@ -98,10 +143,7 @@ public class UCSBOrganizationController extends ApiController{
     @DeleteMapping("")
     public Object deleteOrganization(
             @ApiParam("orgCode") @RequestParam String orgCode) {
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(org);
+        ucsbOrganizationCrud.delete(orgCode);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 }
@@ -1,19 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import edu.ucsb.cs156.example.crud.KeysetReader;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 
 @Api(description="User information (admin only)")
 @RequestMapping("/api/admin/users")
@@ -23,15 +29,33 @@ public class UsersController extends ApiController {
     UserRepository userRepository;
 
     @Autowired
-    ObjectMapper mapper;
+    SparseFieldsetService sparseFieldsetService;
 
-    @ApiOperation(value = "Get a list of all users")
+    @ApiOperation(value = "Get a list of all users, optionally only those whose email or full name starts with q")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    public ResponseEntity<StreamingResponseBody> users(
+            @ApiParam("q (optional prefix of email or full name)") @RequestParam(required = false) String q,
+            @ApiParam("fields (optional comma separated list of fields to return)") @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            if (q != null) {
+                throw new BadRequestException("q and fields cannot be combined");
+            }
+            // validate before the response starts streaming
+            sparseFieldsetService.parseFields(User.class, fields);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(streamJsonArray(sparseFieldsetService.keysetReader(User.class, fields)));
+        }
+        KeysetReader<User> reader = (last, pageSize) -> {
+            long after = last == null ? Long.MIN_VALUE : last.getId();
+            Pageable pageable = PageRequest.of(0, pageSize);
+            return (q == null || q.isEmpty())
+                    ? userRepository.findByIdGreaterThanOrderById(after, pageable)
+                    : userRepository.findPageAfterWithPrefix(after, q, pageable);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(streamJsonArray(reader));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.crud;
+
+import java.util.Set;
+
+import org.springframework.transaction.support.TransactionOperations;
+
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Per-entity settings for {@link EntityCrud}. Every feature is off by
+ * default; an entity opts in by setting it here.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class CrudOptions {
+  // On update, leave a field unchanged when the incoming value is null
+  @Builder.Default
+  private boolean skipNullsOnUpdate = false;
+
+  // On update, also copy the @Id property from the incoming entity
+  @Builder.Default
+  private boolean copyIdOnUpdate = false;
+
+  @Builder.Default
+  private Set<String> excludedFromUpdate = Set.of();
+
+  @Builder.Default
+  private int maxPageSize = 1000;
+
+  // Most ids accepted by one findBatch call
+  @Builder.Default
+  private int maxBatchSize = 100;
+
+  // Keep entities read by id in memory until they are updated or deleted
+  @Builder.Default
+  private boolean cacheReads = false;
+
+  @Builder.Default
+  private int maxCachedEntries = 1000;
+
+  // Record creates, updates and deletes in the /api/changes feed
+  private ChangeFeedService changeFeed;
+
+  // Runs each write together with its change feed entry; required with changeFeed
+  @Builder.Default
+  private TransactionOperations transactions = TransactionOperations.withoutTransaction();
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.crud;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Getter/setter pairs for every read/write property of an entity class.
+ *
+ * The accessors are generated once per class with {@link LambdaMetafactory},
+ * so copying fields on update is a plain interface call per property rather
+ * than a reflective {@link Method#invoke}.
+ */
+public final class EntityAccessors<T> {
+
+  private static final Map<Class<?>, EntityAccessors<?>> CACHE = new ConcurrentHashMap<>();
+
+  private final Class<T> type;
+  private final String idProperty;
+  private final String versionProperty;
+  private final List<Property<T>> properties;
+
+  /**
+   * A single generated property accessor.
+   */
+  public static final class Property<T> {
+    private final String name;
+    private final Function<T, Object> getter;
+    private final BiConsumer<T, Object> setter;
+
+    Property(String name, Function<T, Object> getter, BiConsumer<T, Object> setter) {
+      this.name = name;
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Object get(T entity) {
+      return getter.apply(entity);
+    }
+
+    public void set(T entity, Object value) {
+      setter.accept(entity, value);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> EntityAccessors<T> of(Class<T> type) {
+    return (EntityAccessors<T>) CACHE.computeIfAbsent(type, EntityAccessors::new);
+  }
+
+  private EntityAccessors(Class<T> type) {
+    this.type = type;
+    this.idProperty = findAnnotatedField(type, Id.class);
+    this.versionProperty = findAnnotatedField(type, Version.class);
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    List<Property<T>> found = new ArrayList<>();
+    for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+      Method read = descriptor.getReadMethod();
+      Method write = descriptor.getWriteMethod();
+      if (read == null || write == null) {
+        continue;
+      }
+      try {
+        found.add(new Property<>(descriptor.getName(), getter(lookup, read), setter(lookup, write)));
+      } catch (Throwable t) {
+        throw new IllegalStateException("Cannot generate accessors for %s.%s"
+            .formatted(type.getSimpleName(), descriptor.getName()), t);
+      }
+    }
+    this.properties = Collections.unmodifiableList(found);
+  }
+
+  private static String findAnnotatedField(Class<?> type, Class<? extends Annotation> annotation) {
+    List<String> names = new ArrayList<>();
+    ReflectionUtils.doWithFields(type, field -> names.add(field.getName()),
+        (Field field) -> field.isAnnotationPresent(annotation));
+    return names.isEmpty() ? null : names.get(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Function<T, Object> getter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+    MethodHandle handle = lookup.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+        MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class),
+        handle,
+        MethodType.methodType(method.getReturnType(), method.getDeclaringClass()).wrap());
+    return (Function<T, Object>) site.getTarget().invokeExact();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> BiConsumer<T, Object> setter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+    MethodHandle handle = lookup.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+        MethodType.methodType(BiConsumer.class),
+        MethodType.methodType(void.class, Object.class, Object.class),
+        handle,
+        MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]).wrap()
+            .changeReturnType(void.class));
+    return (BiConsumer<T, Object>) site.getTarget().invokeExact();
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  public String getIdProperty() {
+    return idProperty;
+  }
+
+  /**
+   * Name of the <code>@Version</code> property, or null if the entity is not versioned.
+   */
+  public String getVersionProperty() {
+    return versionProperty;
+  }
+
+  public Property<T> getProperty(String name) {
+    for (Property<T> property : properties) {
+      if (property.getName().equals(name)) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  public List<Property<T>> getProperties() {
+    return properties;
+  }
+}
@@ -0,0 +1,287 @@
+package edu.ucsb.cs156.example.crud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import javax.persistence.Entity;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+
+/**
+ * The find/save/update/delete logic shared by the entity controllers.
+ *
+ * One instance wraps the repository of one entity class. Field copying on
+ * update goes through {@link EntityAccessors}, and paging, batched reads and
+ * the optional read cache are implemented here once; each controller picks
+ * what it needs through {@link CrudOptions}. When a change feed is
+ * configured, every create, update and delete is recorded in it under the
+ * entity's table name, in the same transaction as the write itself.
+ */
+public class EntityCrud<T, ID> {
+
+  private final Class<T> type;
+  private final String entityType;
+  private final PagingAndSortingRepository<T, ID> repository;
+  private final CrudOptions options;
+  private final EntityAccessors<T> accessors;
+  private final EntityAccessors.Property<T> idProperty;
+  private final EntityAccessors.Property<T> version;
+  // Least recently read first; guarded by its own monitor
+  private final LinkedHashMap<ID, T> cache;
+  // Bumped on every eviction so a read that raced with a write is not cached
+  private final AtomicLong generation = new AtomicLong();
+
+  public EntityCrud(Class<T> type, PagingAndSortingRepository<T, ID> repository, CrudOptions options) {
+    this.type = type;
+    Entity entity = type.getAnnotation(Entity.class);
+    this.entityType = entity == null || entity.name().isEmpty() ? type.getSimpleName() : entity.name();
+    this.repository = repository;
+    this.options = options;
+    this.accessors = EntityAccessors.of(type);
+    this.idProperty = accessors.getProperty(accessors.getIdProperty());
+    this.version = accessors.getVersionProperty() == null ? null
+        : accessors.getProperty(accessors.getVersionProperty());
+    this.cache = !options.getCacheReads() ? null : new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ID, T> eldest) {
+        return size() > options.getMaxCachedEntries();
+      }
+    };
+  }
+
+  public Iterable<T> findAll() {
+    return repository.findAll();
+  }
+
+  public Page<T> findPage(Pageable pageable) {
+    if (pageable.getPageSize() > options.getMaxPageSize()) {
+      pageable = PageRequest.of(pageable.getPageNumber(), options.getMaxPageSize(), pageable.getSort());
+    }
+    return repository.findAll(pageable);
+  }
+
+  /**
+   * A {@link KeysetReader} over <code>pageAfter</code>, a repository query
+   * for the rows whose id is greater than the one given, in id order (such
+   * as <code>findByIdGreaterThanOrderById(long, Pageable)</code>). The first
+   * page starts after <code>start</code>, which must sort below every id.
+   */
+  @SuppressWarnings("unchecked")
+  public KeysetReader<T> keysetReader(BiFunction<ID, Pageable, List<T>> pageAfter, ID start) {
+    return (last, pageSize) -> pageAfter.apply(last == null ? start : (ID) idProperty.get(last),
+        PageRequest.of(0, pageSize));
+  }
+
+  public Iterable<T> findAllById(Iterable<ID> ids) {
+    return repository.findAllById(ids);
+  }
+
+  /**
+   * Looks up several entities with one <code>IN</code> query.
+   *
+   * Results come back in the order of <code>ids</code> (duplicates included),
+   * with null for ids that do not exist. At most
+   * {@link CrudOptions#getMaxBatchSize()} ids may be requested at once.
+   *
+   * @throws BadRequestException if <code>ids</code> is empty, too long or
+   *         contains a blank id
+   */
+  @SuppressWarnings("unchecked")
+  public BatchResult<T, ID> findBatch(List<ID> ids) {
+    if (ids.isEmpty()) {
+      throw new BadRequestException("ids must name at least one %s".formatted(type.getSimpleName()));
+    }
+    if (ids.size() > options.getMaxBatchSize()) {
+      throw new BadRequestException("at most %d ids may be requested at once; got %d"
+          .formatted(options.getMaxBatchSize(), ids.size()));
+    }
+    // List.of(...) throws on contains(null)
+    if (ids.stream().anyMatch(Objects::isNull)) {
+      throw new BadRequestException("ids must not contain blank entries");
+    }
+    Set<ID> distinct = new LinkedHashSet<>(ids);
+    Map<ID, T> found = new HashMap<>();
+    for (T entity : repository.findAllById(distinct)) {
+      found.put((ID) idProperty.get(entity), entity);
+    }
+    List<T> results = new ArrayList<>(ids.size());
+    for (ID requested : ids) {
+      results.add(found.get(requested));
+    }
+    List<ID> missing = new ArrayList<>();
+    for (ID requested : distinct) {
+      if (!found.containsKey(requested)) {
+        missing.add(requested);
+      }
+    }
+    return new BatchResult<>(results, missing);
+  }
+
+  public T findById(ID id) {
+    if (cache == null) {
+      return load(id);
+    }
+    long loadedAt;
+    synchronized (cache) {
+      T cached = cache.get(id);
+      if (cached != null) {
+        return cached;
+      }
+      loadedAt = generation.get();
+    }
+    T entity = load(id);
+    synchronized (cache) {
+      if (generation.get() == loadedAt) {
+        cache.put(id, entity);
+      }
+    }
+    return entity;
+  }
+
+  public T create(T entity) {
+    return options.getTransactions().execute(status -> {
+      T saved = repository.save(entity);
+      recordChange(saved, ChangeType.INSERT);
+      return saved;
+    });
+  }
+
+  public T update(ID id, T incoming) {
+    return update(id, incoming, null);
+  }
+
+  /**
+   * Copies <code>incoming</code> onto the stored entity and saves it.
+   *
+   * For versioned entities the save is a single
+   * <code>UPDATE ... WHERE id = ? AND version = ?</code>, so an edit that
+   * raced with another one fails instead of overwriting it. When
+   * <code>ifMatch</code> (the value of an <code>If-Match</code> header) is
+   * given, it must also match the stored entity's {@link #etag}.
+   *
+   * @throws ObjectOptimisticLockingFailureException if the entity was changed
+   *         since the client read it
+   */
+  public T update(ID id, T incoming, String ifMatch) {
+    return update(id, incoming, ifMatch, stored -> {
+    });
+  }
+
+  /**
+   * As {@link #update(Object, Object, String)}, but first hands the stored
+   * entity to <code>beforeChange</code>, for callers that need the values
+   * being replaced.
+   */
+  public T update(ID id, T incoming, String ifMatch, Consumer<T> beforeChange) {
+    T saved = options.getTransactions().execute(status -> {
+      T entity = load(id);
+      checkIfMatch(id, entity, ifMatch);
+      beforeChange.accept(entity);
+      copyProperties(incoming, entity);
+      T updated = repository.save(entity);
+      recordChange(updated, ChangeType.UPDATE);
+      return updated;
+    });
+    // After the commit, so that a read racing with the write is not cached
+    evict(id);
+    return saved;
+  }
+
+  /**
+   * The entity's version as a strong ETag, or null if it is not versioned.
+   */
+  public String etag(T entity) {
+    if (version == null) {
+      return null;
+    }
+    return "\"" + version.get(entity) + "\"";
+  }
+
+  public T delete(ID id) {
+    T deleted = options.getTransactions().execute(status -> {
+      T entity = load(id);
+      repository.delete(entity);
+      recordChange(entity, ChangeType.DELETE);
+      return entity;
+    });
+    evict(id);
+    return deleted;
+  }
+
+  private void checkIfMatch(ID id, T entity, String ifMatch) {
+    String current = etag(entity);
+    if (current == null || ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+      return;
+    }
+    for (String tag : ifMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals(current)) {
+        return;
+      }
+    }
+    throw new ObjectOptimisticLockingFailureException(type, id,
+        "%s with id %s has been modified; its current ETag is %s"
+            .formatted(type.getSimpleName(), id, current), null);
+  }
+
+  private T load(ID id) {
+    return repository.findById(id)
+        .orElseThrow(() -> new EntityNotFoundException(type, id));
+  }
+
+  private void recordChange(T entity, ChangeType changeType) {
+    if (options.getChangeFeed() != null && entity != null) {
+      options.getChangeFeed().record(entityType, idProperty.get(entity), changeType);
+    }
+  }
+
+  private void evict(ID id) {
+    if (cache != null) {
+      synchronized (cache) {
+        generation.incrementAndGet();
+        cache.remove(id);
+      }
+    }
+  }
+
+  void copyProperties(T source, T target) {
+    for (EntityAccessors.Property<T> property : accessors.getProperties()) {
+      String name = property.getName();
+      if (name.equals(accessors.getIdProperty()) && !options.getCopyIdOnUpdate()) {
+        continue;
+      }
+      if (name.equals(accessors.getVersionProperty())) {
+        continue;
+      }
+      if (options.getExcludedFromUpdate().contains(name)) {
+        continue;
+      }
+      Object value = property.get(source);
+      if (value == null && options.getSkipNullsOnUpdate()) {
+        continue;
+      }
+      property.set(target, value);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.crud;
+
+import java.util.List;
+
+/**
+ * Reads rows in primary key order one page at a time, each page starting
+ * after the last row of the previous one (<code>WHERE key &gt; ? ORDER BY
+ * key LIMIT n</code>). Unlike offset paging this needs no count query, and
+ * every page costs the same however far into the table it is.
+ */
+@FunctionalInterface
+public interface KeysetReader<T> {
+  /**
+   * Up to <code>pageSize</code> rows after <code>last</code>, or from the
+   * start when <code>last</code> is null. A short page is the last one.
+   */
+  List<T> readAfter(T last, int pageSize);
+}
@@ -4,9 +4,18 @@ import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
 
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.Where;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -17,14 +26,29 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "article")
+@Table(indexes = {
+  // Created by ddl-auto over all rows; the purge looks rows up by deletedAt
+  @Index(name = "article_title_idx", columnList = "title"),
+  @Index(name = "article_deleted_at_idx", columnList = "deletedAt")
+})
+// Deleting an article only marks it; ArticlePurgeService removes it later
+@SQLDelete(sql = "update article set deleted_at = current_timestamp where id = ? and version = ?")
+@Where(clause = "deleted_at is null")
 public class Article {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long id;
 
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
   private String title;
   private String url;
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
+
+  @JsonIgnore
+  private LocalDateTime deletedAt;
 }
\ No newline at end of file
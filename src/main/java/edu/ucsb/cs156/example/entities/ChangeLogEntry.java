@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One insert, update or delete of an entity, numbered by the global,
+ * increasing <code>seq</code> that <code>/api/changes</code> pages through.
+ * <code>entityType</code> is the changed entity's table name; a
+ * <code>DELETE</code> entry is the tombstone of the removed row.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "changelog")
+public class ChangeLogEntry {
+    public enum ChangeType {
+        INSERT, UPDATE, DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long seq;
+
+    private String entityType;
+    private String entityId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
+
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The single row that writers of the <code>changelog</code> lock before
+ * inserting into it, so that entries are committed in <code>seq</code>
+ * order. See {@link edu.ucsb.cs156.example.services.ChangeFeedService}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity(name = "changelog_lock")
+public class ChangeLogLock {
+    public static final long ID = 1;
+
+    @Id
+    private long id;
+}
@@ -5,7 +5,11 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,15 +21,24 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "helprequest")
+@Table(indexes = {
+  @Index(name = "helprequest_solved_time_idx", columnList = "solvedTime")
+})
 public class HelpRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private long version;
+
     private String requesterEmail;
     private String teamId;
     private String tableOrBreakoutRoom;
     private LocalDateTime requestTime;
     private String explanation;
     private boolean solved;
+    // Set by the server when solved changes from false to true
+    private LocalDateTime solvedTime;
 }
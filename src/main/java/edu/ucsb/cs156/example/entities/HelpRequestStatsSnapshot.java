@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of a periodic snapshot of the help request statistics kept by
+ * {@link edu.ucsb.cs156.example.services.HelpRequestStatsService}. A null
+ * <code>teamId</code> is the row for all teams.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "helprequeststatssnapshot")
+@Table(indexes = {
+  @Index(name = "helprequeststatssnapshot_taken_at_idx", columnList = "takenAt")
+})
+public class HelpRequestStatsSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private LocalDateTime takenAt;
+    private String teamId;
+    private long windowMinutes;
+    private long solvedCount;
+    private Long medianSolveSeconds;
+    private Long p90SolveSeconds;
+    private long openBacklog;
+}
@@ -3,27 +3,60 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "menuitemreviews")
+@Table(indexes = {
+  @Index(name = "menuitemreviews_item_date_idx", columnList = "menuItemId, dateReviewed, itemid")
+})
 public class MenuItemReview {
+  // id of the review itself; the reviewed item is menuItemId
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long itemid;
 
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
+  // the UCSBDiningCommonsMenuItem being reviewed; null for reviews written
+  // before reviews were linked to menu items
+  private Long menuItemId;
+
+  // read-only view of menuItemId, mapped so the schema gets a foreign key
+  @JsonIgnore
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "menuItemId", insertable = false, updatable = false,
+      foreignKey = @ForeignKey(name = "menuitemreviews_menu_item_fk"))
+  private UCSBDiningCommonsMenuItem menuItem;
+
   private String reviewerEmail;
   private int stars;
   private LocalDateTime dateReviewed;
   private String comments;
-}
\ No newline at end of file
+}
@@ -4,7 +4,11 @@ import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -17,10 +21,19 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "recommendations")
+@Table(indexes = {
+  @Index(name = "recommendations_professor_date_idx", columnList = "professorEmail, dateRequested"),
+  @Index(name = "recommendations_date_requested_idx", columnList = "dateRequested")
+})
 public class Recommendation {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long id;
+
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
   
   private String requesterEmail;
   private String professorEmail;  
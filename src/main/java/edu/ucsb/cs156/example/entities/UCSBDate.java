@@ -4,7 +4,11 @@ import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -17,11 +21,18 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdates")
+@Table(indexes = {
+  @Index(name = "ucsbdates_quarter_idx", columnList = "quarterYYYYQ")
+})
 public class UCSBDate {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long id;
 
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
   private String quarterYYYYQ;
   private String name;  
   private LocalDateTime localDateTime;
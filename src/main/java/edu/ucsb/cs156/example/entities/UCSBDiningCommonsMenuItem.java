@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.entities;
 
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
 
 import lombok.Data;
@@ -17,10 +21,18 @@ import lombok.Builder;
 @Builder
 
 @Entity(name = "ucsbdiningcommonsmenuitem")
+@Table(indexes = {
+  @Index(name = "ucsbdiningcommonsmenuitem_commons_idx", columnList = "diningCommonsCode")
+})
 public class UCSBDiningCommonsMenuItem {
     @Id 
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private long version;
+
     private String diningCommonsCode;
     private String name;
     private String station;
@@ -1,7 +1,9 @@
 package edu.ucsb.cs156.example.entities;
 
 import javax.persistence.Entity;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +18,11 @@ import lombok.Builder;
 public class UCSBOrganization {
   @Id
   private String orgCode;
+
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
   private String orgTranslationShort;
   private String orgTranslation;
   private boolean inactive;
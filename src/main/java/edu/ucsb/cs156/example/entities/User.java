@@ -9,12 +9,18 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Builder
 @Entity(name = "users")
+@Table(indexes = {
+  @Index(name = "users_email_idx", columnList = "email"),
+  @Index(name = "users_full_name_idx", columnList = "fullName")
+})
 public class User {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
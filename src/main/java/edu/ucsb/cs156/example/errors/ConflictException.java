@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.errors;
+
+public class ConflictException extends RuntimeException {
+  public ConflictException(String message) {
+    super(message);
+  }
+}
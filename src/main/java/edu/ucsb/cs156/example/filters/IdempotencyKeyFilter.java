@@ -0,0 +1,241 @@
+package edu.ucsb.cs156.example.filters;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.filters.IdempotencyStore.Entry;
+import edu.ucsb.cs156.example.filters.IdempotencyStore.Reservation;
+import edu.ucsb.cs156.example.filters.IdempotencyStore.StoredResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Makes the <code>/post</code> create endpoints safe to retry.
+ *
+ * A client that sends an <code>Idempotency-Key</code> header gets the
+ * original response back when it repeats the same request within
+ * <code>app.idempotency.ttlMillis</code>, without the insert running again.
+ * Duplicates that arrive while the first request is still running wait for
+ * it instead of inserting in parallel. Keys are scoped to the signed-in user
+ * and the request path; reusing a key with different parameters or a
+ * different body is rejected with 422. The CSRF token parameter, which
+ * changes on every request, is not part of that comparison.
+ *
+ * Requests without the header are passed through untouched.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  // Spring Security's default CSRF parameter name
+  static final String CSRF_PARAMETER = "_csrf";
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  private final IdempotencyStore store;
+  private final long waitMillis;
+
+  public IdempotencyKeyFilter(
+      @Value("${app.idempotency.ttlMillis:86400000}") long ttlMillis,
+      @Value("${app.idempotency.maxEntries:10000}") int maxEntries,
+      @Value("${app.idempotency.waitMillis:30000}") long waitMillis) {
+    this.store = new IdempotencyStore(ttlMillis, maxEntries);
+    this.waitMillis = waitMillis;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !"POST".equals(request.getMethod())
+        || !request.getRequestURI().endsWith("/post")
+        || request.getHeader(HEADER) == null;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String key = storeKey(request);
+    // Parameters first: reading the body before them would hide form fields
+    Map<String, String[]> params = request.getParameterMap();
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+    request = new CachedBodyRequest(request, body);
+    String fingerprint = fingerprint(params, body);
+
+    while (true) {
+      Reservation reservation = store.reserve(key, fingerprint);
+      Entry entry = reservation.getEntry();
+
+      if (reservation.getOwner()) {
+        execute(request, response, chain, key, entry);
+        return;
+      }
+      if (!entry.getFingerprint().equals(fingerprint)) {
+        writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+            "Idempotency-Key was already used for a request with different parameters");
+        return;
+      }
+
+      StoredResponse stored;
+      try {
+        stored = entry.getResponse().get(waitMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ServletException(e);
+      } catch (ExecutionException e) {
+        throw new ServletException(e.getCause());
+      }
+
+      if (stored != null) {
+        replay(stored, response);
+        return;
+      }
+      // the first request failed and released the key; try to claim it ourselves
+    }
+  }
+
+  private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+      String key, Entry entry) throws ServletException, IOException {
+    ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+    StoredResponse stored = null;
+    try {
+      chain.doFilter(request, wrapper);
+      int status = wrapper.getStatus();
+      if (status >= 200 && status < 300) {
+        stored = new StoredResponse(status, wrapper.getContentType(), wrapper.getContentAsByteArray());
+      }
+    } finally {
+      if (stored == null) {
+        store.remove(key, entry);
+      }
+      entry.getResponse().complete(stored);
+    }
+    wrapper.copyBodyToResponse();
+  }
+
+  private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+    log.info("Replaying stored response for {}", HEADER);
+    response.setStatus(stored.getStatus());
+    if (stored.getContentType() != null) {
+      response.setContentType(stored.getContentType());
+    }
+    response.setHeader(REPLAYED_HEADER, "true");
+    response.setContentLength(stored.getBody().length);
+    response.getOutputStream().write(stored.getBody());
+  }
+
+  private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(),
+        Map.of("type", "IdempotencyKeyException", "message", message));
+  }
+
+  private String storeKey(HttpServletRequest request) {
+    Principal principal = request.getUserPrincipal();
+    String user = principal == null ? "" : principal.getName();
+    return user + " " + request.getRequestURI() + " " + request.getHeader(HEADER);
+  }
+
+  private String fingerprint(Map<String, String[]> parameters, byte[] body) {
+    Map<String, String[]> params = new TreeMap<>(parameters);
+    params.remove(CSRF_PARAMETER);
+    StringBuilder canonical = new StringBuilder();
+    params.forEach((name, values) -> {
+      for (String value : values) {
+        canonical.append(name).append('=').append(value).append('&');
+      }
+    });
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest(body));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Serves a body that the filter has already read to the rest of the chain. */
+  private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    CachedBodyRequest(HttpServletRequest request, byte[] body) {
+      super(request);
+      this.body = body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream in = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public int read() {
+          return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+          return in.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+          return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+      String encoding = getCharacterEncoding();
+      return new BufferedReader(new InputStreamReader(getInputStream(),
+          encoding == null ? StandardCharsets.UTF_8.name() : encoding));
+    }
+  }
+}
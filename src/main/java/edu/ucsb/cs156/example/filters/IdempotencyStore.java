@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.filters;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Bounded, time-limited record of the responses sent for each
+ * <code>Idempotency-Key</code>.
+ *
+ * Entries are kept in insertion order; since every entry lives for the same
+ * TTL, the oldest entry is always the next to expire, so expiry and the size
+ * bound are both handled by trimming from the head of the map.
+ */
+public class IdempotencyStore {
+
+  /**
+   * The response recorded for a key. Only successful responses are stored.
+   */
+  @Data
+  @AllArgsConstructor
+  public static class StoredResponse {
+    private int status;
+    private String contentType;
+    private byte[] body;
+  }
+
+  /**
+   * One key's slot. The first request to claim a key completes
+   * <code>response</code>; concurrent duplicates wait on it. It is completed
+   * with <code>null</code> when the first request did not succeed.
+   */
+  @Data
+  public static class Entry {
+    private final String fingerprint;
+    private final long expiresAt;
+    private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+  }
+
+  /**
+   * Result of {@link IdempotencyStore#reserve}; <code>owner</code> is true
+   * when the caller created the entry and must execute the request.
+   */
+  @Data
+  @AllArgsConstructor
+  public static class Reservation {
+    private Entry entry;
+    private boolean owner;
+  }
+
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final LongSupplier clock;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+  public IdempotencyStore(long ttlMillis, int maxEntries) {
+    this(ttlMillis, maxEntries, System::currentTimeMillis);
+  }
+
+  IdempotencyStore(long ttlMillis, int maxEntries, LongSupplier clock) {
+    this.ttlMillis = ttlMillis;
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+  }
+
+  public synchronized Reservation reserve(String key, String fingerprint) {
+    long now = clock.getAsLong();
+    Iterator<Map.Entry<String, Entry>> oldest = entries.entrySet().iterator();
+    while (oldest.hasNext()) {
+      Entry entry = oldest.next().getValue();
+      if (entry.getExpiresAt() > now && entries.size() < maxEntries) {
+        break;
+      }
+      if (entry.getExpiresAt() > now && !entry.getResponse().isDone()) {
+        // never evict a request that is still running; let the map grow past the bound instead
+        break;
+      }
+      oldest.remove();
+    }
+
+    Entry existing = entries.get(key);
+    if (existing != null) {
+      return new Reservation(existing, false);
+    }
+    Entry created = new Entry(fingerprint, now + ttlMillis);
+    entries.put(key, created);
+    return new Reservation(created, true);
+  }
+
+  public synchronized void remove(String key, Entry entry) {
+    entries.remove(key, entry);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+}
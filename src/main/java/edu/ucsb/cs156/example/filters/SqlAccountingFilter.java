@@ -0,0 +1,151 @@
+package edu.ucsb.cs156.example.filters;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import edu.ucsb.cs156.example.jdbc.SqlStats;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reports how much database work each <code>/api</code> request did.
+ *
+ * The statement count and total statement time are returned in the
+ * <code>X-DB-Queries</code> and <code>X-DB-Time-Ms</code> response headers
+ * and, together with the rows read, logged as one key=value line per request.
+ * Requests slower than <code>app.sql.slowRequestMillis</code> additionally log
+ * SQL text, for a <code>app.sql.slowSampleRate</code> fraction of requests
+ * (chosen when the request starts). SQL text is only kept once a request has
+ * run past the threshold, so the log shows the first
+ * <code>app.sql.captureLimit</code> statements run after that point, and
+ * fast requests pay for the counters only.
+ *
+ * Headers reflect the statements run before the response was committed. For
+ * <code>Callable</code> endpoints the filter runs again on the async dispatch
+ * and sets the headers there, so they include the statements of the async
+ * part. A <code>StreamingResponseBody</code> commits with its first flush,
+ * so its headers only count the statements run before that flush. The log
+ * line is written once the request (including any async part) completes and
+ * is always complete.
+ */
+@Component
+@Slf4j
+public class SqlAccountingFilter extends OncePerRequestFilter {
+
+  public static final String QUERIES_HEADER = "X-DB-Queries";
+  public static final String TIME_HEADER = "X-DB-Time-Ms";
+
+  private static final String STATS_ATTRIBUTE = SqlAccountingFilter.class.getName() + ".stats";
+
+  private final long slowRequestMillis;
+  private final int captureLimit;
+  private final double slowSampleRate;
+
+  public SqlAccountingFilter(
+      @Value("${app.sql.slowRequestMillis:1000}") long slowRequestMillis,
+      @Value("${app.sql.captureLimit:50}") int captureLimit,
+      @Value("${app.sql.slowSampleRate:1.0}") double slowSampleRate) {
+    this.slowRequestMillis = slowRequestMillis;
+    this.captureLimit = captureLimit;
+    this.slowSampleRate = slowSampleRate;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/");
+  }
+
+  // The async dispatch of a Callable writes the response; set the headers there
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    SqlStats asyncStats = (SqlStats) request.getAttribute(STATS_ATTRIBUTE);
+    if (isAsyncDispatch(request) && asyncStats != null) {
+      doFilterWithStats(request, response, chain, asyncStats);
+      return;
+    }
+    long start = System.nanoTime();
+    boolean sampled = captureLimit > 0 && ThreadLocalRandom.current().nextDouble() < slowSampleRate;
+    SqlStats stats = new SqlStats(sampled ? captureLimit : 0, TimeUnit.MILLISECONDS.toNanos(slowRequestMillis));
+    request.setAttribute(STATS_ATTRIBUTE, stats);
+    try {
+      doFilterWithStats(request, response, chain, stats);
+    } finally {
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            report(request, response, stats, start, sampled);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+          }
+        });
+      } else {
+        report(request, response, stats, start, sampled);
+      }
+    }
+  }
+
+  private static void doFilterWithStats(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain, SqlStats stats) throws ServletException, IOException {
+    SqlStats.bind(stats);
+    HttpServletResponse wrapped = new OnCommittedResponseWrapper(response) {
+      @Override
+      protected void onResponseCommitted() {
+        setHeaders(response, stats);
+      }
+    };
+    try {
+      chain.doFilter(request, wrapped);
+    } finally {
+      SqlStats.unbind();
+      if (!response.isCommitted()) {
+        setHeaders(response, stats);
+      }
+    }
+  }
+
+  private static void setHeaders(HttpServletResponse response, SqlStats stats) {
+    response.setHeader(QUERIES_HEADER, Long.toString(stats.getQueries()));
+    response.setHeader(TIME_HEADER, Long.toString(stats.getTimeMillis()));
+  }
+
+  private void report(HttpServletRequest request, HttpServletResponse response, SqlStats stats, long start,
+      boolean sampled) {
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    log.info("request method={} uri={} status={} elapsedMs={} dbQueries={} dbTimeMs={} dbRows={}",
+        request.getMethod(), request.getRequestURI(), response.getStatus(), elapsedMillis,
+        stats.getQueries(), stats.getTimeMillis(), stats.getRows());
+    if (elapsedMillis >= slowRequestMillis && sampled) {
+      log.warn("slow request method={} uri={} elapsedMs={} statements={}",
+          request.getMethod(), request.getRequestURI(), elapsedMillis, stats.getStatements());
+    }
+  }
+}
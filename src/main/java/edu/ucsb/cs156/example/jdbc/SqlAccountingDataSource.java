@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A DataSource that times every statement and counts the rows read through
+ * it, recording into the {@link SqlStats} bound to the current thread.
+ *
+ * Connections, statements and result sets are wrapped in JDK proxies; when no
+ * SqlStats is bound (startup, background jobs) the proxies only delegate.
+ * <code>equals</code>, <code>hashCode</code> and <code>toString</code> are
+ * answered by the proxy itself, so a proxy is only equal to itself (as pools
+ * and Hibernate expect) rather than to the object it wraps.
+ */
+public class SqlAccountingDataSource extends DelegatingDataSource {
+
+  public SqlAccountingDataSource(DataSource target) {
+    super(target);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    Connection connection = super.getConnection();
+    return wrap(Connection.class, new ConnectionHandler(connection));
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    Connection connection = super.getConnection(username, password);
+    return wrap(Connection.class, new ConnectionHandler(connection));
+  }
+
+  private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(SqlAccountingDataSource.class.getClassLoader(),
+        new Class<?>[] { type }, handler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  /**
+   * Handles the methods every proxy inherits from Object and passes the rest
+   * to {@link #invokeOnTarget}.
+   */
+  private abstract static class ProxyHandler implements InvocationHandler {
+    final Object target;
+
+    ProxyHandler(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == Object.class) {
+        switch (method.getName()) {
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "toString":
+            return "SqlAccounting proxy for " + target;
+          default:
+            break;
+        }
+      }
+      return invokeOnTarget(proxy, method, args);
+    }
+
+    abstract Object invokeOnTarget(Object proxy, Method method, Object[] args) throws Throwable;
+  }
+
+  private static class ConnectionHandler extends ProxyHandler {
+
+    ConnectionHandler(Connection target) {
+      super(target);
+    }
+
+    @Override
+    Object invokeOnTarget(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = SqlAccountingDataSource.invoke(target, method, args);
+      if (result instanceof CallableStatement) {
+        return wrap(CallableStatement.class,
+            new StatementHandler(result, sqlArgument(args)));
+      }
+      if (result instanceof PreparedStatement) {
+        return wrap(PreparedStatement.class,
+            new StatementHandler(result, sqlArgument(args)));
+      }
+      if (result instanceof Statement) {
+        return wrap(Statement.class, new StatementHandler(result, null));
+      }
+      return result;
+    }
+
+    private static String sqlArgument(Object[] args) {
+      return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+    }
+  }
+
+  private static class StatementHandler extends ProxyHandler {
+    private final String preparedSql;
+
+    StatementHandler(Object target, String preparedSql) {
+      super(target);
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    Object invokeOnTarget(Object proxy, Method method, Object[] args) throws Throwable {
+      SqlStats stats = SqlStats.current();
+      if (stats == null || !method.getName().startsWith("execute")) {
+        Object result = SqlAccountingDataSource.invoke(target, method, args);
+        return stats != null && result instanceof ResultSet ? wrapResultSet((ResultSet) result, stats) : result;
+      }
+      long start = System.nanoTime();
+      try {
+        Object result = SqlAccountingDataSource.invoke(target, method, args);
+        return result instanceof ResultSet ? wrapResultSet((ResultSet) result, stats) : result;
+      } finally {
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        stats.recordQuery(sql, System.nanoTime() - start);
+      }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, SqlStats stats) {
+      return wrap(ResultSet.class, new ResultSetHandler(resultSet, stats));
+    }
+  }
+
+  private static class ResultSetHandler extends ProxyHandler {
+    private final SqlStats stats;
+
+    ResultSetHandler(ResultSet target, SqlStats stats) {
+      super(target);
+      this.stats = stats;
+    }
+
+    @Override
+    Object invokeOnTarget(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = SqlAccountingDataSource.invoke(target, method, args);
+      if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+        stats.recordRow();
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.jdbc;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the application's DataSource in a {@link SqlAccountingDataSource} so
+ * per-request SQL statistics can be collected without SQL debug logging.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sql.accounting.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlAccountingDataSourcePostProcessor implements BeanPostProcessor {
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource && !(bean instanceof SqlAccountingDataSource)) {
+      return new SqlAccountingDataSource((DataSource) bean);
+    }
+    return bean;
+  }
+}
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL statement count, database time and rows read for one HTTP request.
+ *
+ * An instance is bound to the request thread by SqlAccountingFilter (and
+ * carried to the async controller executor by {@link #propagate}); the JDBC
+ * proxies in {@link SqlAccountingDataSource} record into whichever instance is
+ * bound to the current thread, and record nothing when none is.
+ */
+public class SqlStats {
+
+  private static final ThreadLocal<SqlStats> CURRENT = new ThreadLocal<>();
+
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder nanos = new LongAdder();
+  private final LongAdder rows = new LongAdder();
+  private final int captureLimit;
+  private final long startNanos = System.nanoTime();
+  private final long captureAfterNanos;
+  private final List<String> statements = new ArrayList<>();
+
+  /**
+   * Keeps the SQL text of the first <code>captureLimit</code> statements.
+   */
+  public SqlStats(int captureLimit) {
+    this(captureLimit, 0);
+  }
+
+  /**
+   * Keeps only the counters until <code>captureAfterNanos</code> have passed
+   * since construction, and from then on also the SQL text of up to
+   * <code>captureLimit</code> statements. A request that finishes quickly
+   * never copies any SQL.
+   *
+   * @param captureLimit      how many statements' SQL text to keep for
+   *                          slow-request logging; 0 keeps none
+   * @param captureAfterNanos how slow the request must already be before
+   *                          statements are kept
+   */
+  public SqlStats(int captureLimit, long captureAfterNanos) {
+    this.captureLimit = captureLimit;
+    this.captureAfterNanos = captureAfterNanos;
+  }
+
+  public static SqlStats current() {
+    return CURRENT.get();
+  }
+
+  public static void bind(SqlStats stats) {
+    CURRENT.set(stats);
+  }
+
+  public static void unbind() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Wraps a task so that it records into the SqlStats bound to the submitting
+   * thread; used as the TaskDecorator of the controller executor.
+   */
+  public static Runnable propagate(Runnable task) {
+    SqlStats stats = current();
+    if (stats == null) {
+      return task;
+    }
+    return () -> {
+      SqlStats previous = current();
+      bind(stats);
+      try {
+        task.run();
+      } finally {
+        if (previous == null) {
+          unbind();
+        } else {
+          bind(previous);
+        }
+      }
+    };
+  }
+
+  void recordQuery(String sql, long elapsedNanos) {
+    queries.increment();
+    nanos.add(elapsedNanos);
+    if (captureLimit > 0 && sql != null && System.nanoTime() - startNanos >= captureAfterNanos) {
+      synchronized (statements) {
+        if (statements.size() < captureLimit) {
+          statements.add(sql);
+        }
+      }
+    }
+  }
+
+  void recordRow() {
+    rows.increment();
+  }
+
+  public long getQueries() {
+    return queries.sum();
+  }
+
+  public long getTimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+  }
+
+  public long getRows() {
+    return rows.sum();
+  }
+
+  public List<String> getStatements() {
+    synchronized (statements) {
+      return List.copyOf(statements);
+    }
+  }
+}
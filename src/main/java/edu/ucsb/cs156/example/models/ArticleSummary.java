@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of Article for list views; omits the explanation column.
+ */
+public interface ArticleSummary {
+  long getId();
+  String getTitle();
+  String getUrl();
+  String getEmail();
+  LocalDateTime getDateAdded();
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Result of a <code>/batch?ids=</code> lookup: one entry in
+ * <code>results</code> per requested id, in request order, with null where
+ * the id does not exist; those ids are also listed in <code>missing</code>.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchResult<T, ID> {
+  private List<T> results;
+  private List<ID> missing;
+}
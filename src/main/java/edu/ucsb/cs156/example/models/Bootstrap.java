@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class Bootstrap {
+  private CurrentUser currentUser;
+  /** Only filled in for admins, matching /api/systemInfo. */
+  private SystemInfo systemInfo;
+  private Iterable<UCSBDiningCommons> diningCommons;
+  private Iterable<UCSBOrganization> organizations;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A page of <code>/api/changes</code>. Pass <code>nextSince</code> as
+ * <code>since</code> to read on; <code>hasMore</code> is true when more
+ * changes were already waiting.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ChangesPage {
+  private List<ChangeLogEntry> changes;
+  private long nextSince;
+  private boolean hasMore;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+/**
+ * A dining commons with its menu items, grouped by station. Stations and the
+ * items within each station are sorted by name.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class DiningCommonsDetail {
+  private UCSBDiningCommons commons;
+  private Map<String, List<MenuItemDetail>> stations;
+}
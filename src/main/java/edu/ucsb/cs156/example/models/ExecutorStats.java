@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ExecutorStats {
+  private int poolSize;
+  private int activeCount;
+  private int maxPoolSize;
+  private int queueDepth;
+  private int queueRemainingCapacity;
+  private long completedTaskCount;
+  private long rejectedCount;
+}
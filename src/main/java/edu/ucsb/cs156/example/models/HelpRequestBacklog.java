@@ -0,0 +1,9 @@
+package edu.ucsb.cs156.example.models;
+
+/**
+ * Projection of the number of unsolved help requests of one team.
+ */
+public interface HelpRequestBacklog {
+  String getTeamId();
+  long getOpenCount();
+}
@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the team and timestamps of one solved help request.
+ */
+public interface HelpRequestSolve {
+  String getTeamId();
+  LocalDateTime getRequestTime();
+  LocalDateTime getSolvedTime();
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Time-to-solve and open backlog of help requests for one team, or for all
+ * teams when <code>teamId</code> is null. The solve figures cover requests
+ * solved in the last <code>windowMinutes</code>; the median and p90 are
+ * null when there were none.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestStats {
+  private String teamId;
+  private long windowMinutes;
+  private long solvedCount;
+  private Long medianSolveSeconds;
+  private Long p90SolveSeconds;
+  private long openBacklog;
+}
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of HelpRequest for list views; omits the explanation column.
+ */
+public interface HelpRequestSummary {
+  long getId();
+  String getRequesterEmail();
+  String getTeamId();
+  String getTableOrBreakoutRoom();
+  LocalDateTime getRequestTime();
+  boolean getSolved();
+  LocalDateTime getSolvedTime();
+}
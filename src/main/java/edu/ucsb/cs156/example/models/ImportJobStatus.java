@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Progress of a background CSV import. <code>errors</code> holds the first
+ * line errors only; <code>errorCount</code> counts all of them.
+ * <code>message</code> explains a <code>FAILED</code> job.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ImportJobStatus {
+  public enum State {
+    QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+  }
+
+  private String id;
+  private String fileName;
+  private State state;
+  private long totalBytes;
+  private long bytesRead;
+  private long linesRead;
+  private long inserted;
+  private long errorCount;
+  private List<ImportLineError> errors;
+  private String message;
+  private LocalDateTime createdAt;
+  private LocalDateTime finishedAt;
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A change to one menu item, pushed to the subscribers of its dining
+ * commons. <code>op</code> is <code>create</code>, <code>update</code> or
+ * <code>delete</code>; a delete carries only the id.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MenuItemDelta {
+  private String op;
+  private long id;
+  private String name;
+  private String station;
+}
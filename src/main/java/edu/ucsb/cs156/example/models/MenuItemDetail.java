@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * One menu item on the dining commons detail page, with the number of
+ * reviews it has and their average stars (null when it has none).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class MenuItemDetail {
+  private long id;
+  private String name;
+  private long reviewCount;
+  private Double averageStars;
+}
@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.models;
+
+/**
+ * Projection of the review count, total and average stars of one menu item.
+ */
+public interface MenuItemRating {
+  Long getMenuItemId();
+  long getReviewCount();
+  Double getAverageStars();
+  Long getStarSum();
+}
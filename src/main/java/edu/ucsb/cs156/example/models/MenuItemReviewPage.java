@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+/**
+ * One page of a menu item's reviews, newest first. <code>nextCursor</code>
+ * is passed back as <code>cursor</code> to get the following page; it is
+ * null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class MenuItemReviewPage {
+  private List<MenuItemReview> reviews;
+  private String nextCursor;
+}
@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of MenuItemReview for list views; omits the comments column.
+ */
+public interface MenuItemReviewSummary {
+  long getItemid();
+  String getReviewerEmail();
+  int getStars();
+  LocalDateTime getDateReviewed();
+}
@@ -0,0 +1,15 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of Recommendation for list views; omits the explanation column.
+ */
+public interface RecommendationSummary {
+  long getId();
+  String getRequesterEmail();
+  String getProfessorEmail();
+  LocalDateTime getDateRequested();
+  LocalDateTime getDateNeeded();
+  boolean getDone();
+}
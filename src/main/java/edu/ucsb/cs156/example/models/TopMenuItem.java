@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A menu item's place on the top-rated leaderboard. <code>score</code> is
+ * the Bayesian-smoothed rating the leaderboard is ordered by.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class TopMenuItem {
+  private long id;
+  private String name;
+  private String diningCommonsCode;
+  private String station;
+  private long reviewCount;
+  private double averageStars;
+  private double score;
+}
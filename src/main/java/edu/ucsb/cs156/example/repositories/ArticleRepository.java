@@ -1,12 +1,51 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.models.ArticleSummary;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface ArticleRepository extends CrudRepository<Article, Long> {
+public interface ArticleRepository extends PagingAndSortingRepository<Article, Long> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<Article> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
   Iterable<Article> findAllByTitle(String title);
-}
\ No newline at end of file
+  Iterable<ArticleSummary> findAllProjectedBy();
+
+  // Deleted articles are hidden from every entity query by @Where on
+  // Article, so the two methods below use native SQL to reach them
+
+  /**
+   * Brings back an article deleted by {@link #delete}, if it has not been
+   * purged yet. Returns the number of rows restored (0 or 1).
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "update article set deleted_at = null, version = version + 1 where id = :id and deleted_at is not null",
+      nativeQuery = true)
+  int restoreById(@Param("id") long id);
+
+  /**
+   * Physically removes up to <code>batchSize</code> articles deleted more
+   * than <code>retentionDays</code> ago. The cutoff is computed by the
+   * database, from the same clock that set <code>deleted_at</code>.
+   * Returns the number of rows removed.
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "delete from article where id in "
+      + "(select id from article where deleted_at < current_timestamp - :retentionDays * interval '1' day"
+      + " order by id limit :batchSize)",
+      nativeQuery = true)
+  int purgeDeletedOlderThan(@Param("retentionDays") int retentionDays, @Param("batchSize") int batchSize);
+}
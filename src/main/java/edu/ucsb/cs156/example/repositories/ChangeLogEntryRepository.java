@@ -0,0 +1,15 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+
+@Repository
+public interface ChangeLogEntryRepository extends CrudRepository<ChangeLogEntry, Long> {
+  // Served by the primary key
+  List<ChangeLogEntry> findBySeqGreaterThanOrderBySeq(long seq, Pageable pageable);
+}
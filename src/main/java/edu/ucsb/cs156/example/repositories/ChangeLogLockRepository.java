@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.ChangeLogLock;
+
+@Repository
+public interface ChangeLogLockRepository extends CrudRepository<ChangeLogLock, Long> {
+  // SELECT ... FOR UPDATE; the row lock is held until the caller's transaction ends
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select l from changelog_lock l where l.id = " + ChangeLogLock.ID)
+  Optional<ChangeLogLock> lockFeed();
+
+  // Inserts the lock row unless it exists; written to run on both Postgres and H2
+  @Transactional
+  @Modifying
+  @Query(value = "insert into changelog_lock (id) select " + ChangeLogLock.ID
+      + " where not exists (select 1 from changelog_lock where id = " + ChangeLogLock.ID + ")", nativeQuery = true)
+  int insertLockIfMissing();
+}
@@ -1,10 +1,32 @@
 package edu.ucsb.cs156.example.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestBacklog;
+import edu.ucsb.cs156.example.models.HelpRequestSolve;
+import edu.ucsb.cs156.example.models.HelpRequestSummary;
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+public interface HelpRequestRepository extends PagingAndSortingRepository<HelpRequest, Long> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<HelpRequest> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+  Iterable<HelpRequestSummary> findAllProjectedBy();
+
+  // Requests solved since a time, oldest solve first; served by helprequest_solved_time_idx
+  @Query("select h.teamId as teamId, h.requestTime as requestTime, h.solvedTime as solvedTime"
+      + " from helprequest h where h.solvedTime >= :since order by h.solvedTime")
+  List<HelpRequestSolve> findSolvedSince(@Param("since") LocalDateTime since);
+
+  @Query("select h.teamId as teamId, count(h) as openCount from helprequest h"
+      + " where h.solved = false group by h.teamId")
+  List<HelpRequestBacklog> countOpenByTeam();
 }
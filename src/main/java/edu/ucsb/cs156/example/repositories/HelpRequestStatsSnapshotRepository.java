@@ -0,0 +1,10 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import edu.ucsb.cs156.example.entities.HelpRequestStatsSnapshot;
+
+@Repository
+public interface HelpRequestStatsSnapshotRepository extends CrudRepository<HelpRequestStatsSnapshot, Long> {
+}
@@ -1,13 +1,46 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
- 
-}
\ No newline at end of file
+public interface MenuItemReviewRepository extends PagingAndSortingRepository<MenuItemReview, Long> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<MenuItemReview> findByItemidGreaterThanOrderByItemid(long itemid, Pageable pageable);
+
+  Iterable<MenuItemReviewSummary> findAllProjectedBy();
+
+  // Checked before a menu item is deleted; served by menuitemreviews_item_date_idx
+  boolean existsByMenuItemId(Long menuItemId);
+
+  // First page of a menu item's reviews, newest first; served by menuitemreviews_item_date_idx
+  List<MenuItemReview> findByMenuItemIdAndDateReviewedNotNullOrderByDateReviewedDescItemidDesc(
+      Long menuItemId, Pageable pageable);
+
+  // Page after (dateReviewed, itemid) in the same order
+  @Query("select r from menuitemreviews r where r.menuItemId = :menuItemId"
+      + " and (r.dateReviewed < :dateReviewed or (r.dateReviewed = :dateReviewed and r.itemid < :itemid))"
+      + " order by r.dateReviewed desc, r.itemid desc")
+  List<MenuItemReview> findPageAfter(@Param("menuItemId") Long menuItemId,
+      @Param("dateReviewed") LocalDateTime dateReviewed, @Param("itemid") long itemid, Pageable pageable);
+
+  @Query("select r.menuItemId as menuItemId, count(r) as reviewCount, avg(r.stars) as averageStars,"
+      + " sum(r.stars) as starSum from menuitemreviews r where r.menuItemId in :menuItemIds group by r.menuItemId")
+  List<MenuItemRating> findRatingsByMenuItemIds(@Param("menuItemIds") Collection<Long> menuItemIds);
+
+  @Query("select r.menuItemId as menuItemId, count(r) as reviewCount, avg(r.stars) as averageStars,"
+      + " sum(r.stars) as starSum from menuitemreviews r where r.menuItemId is not null group by r.menuItemId")
+  List<MenuItemRating> findAllRatings();
+}
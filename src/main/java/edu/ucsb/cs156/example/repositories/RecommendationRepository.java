@@ -1,13 +1,47 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.Recommendation;
+import edu.ucsb.cs156.example.models.RecommendationSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
 
-import java.util.Optional;
+import javax.persistence.QueryHint;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface RecommendationRepository extends CrudRepository<Recommendation, Long> {
-}
\ No newline at end of file
+public interface RecommendationRepository extends PagingAndSortingRepository<Recommendation, Long> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<Recommendation> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+  /** Rows fetched per round trip by the export cursors below */
+  String EXPORT_FETCH_SIZE = "500";
+
+  Iterable<RecommendationSummary> findAllProjectedBy();
+
+  // The streams below read through a database cursor and must be consumed,
+  // and closed, inside a transaction (see RecommendationExportService)
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+      @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Recommendation> streamByDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(
+      LocalDateTime from, LocalDateTime to);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+      @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  Stream<Recommendation> streamByProfessorEmailAndDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(
+      String professorEmail, LocalDateTime from, LocalDateTime to);
+}
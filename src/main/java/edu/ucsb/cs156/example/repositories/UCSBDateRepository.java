@@ -2,11 +2,17 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends PagingAndSortingRepository<UCSBDate, Long> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<UCSBDate> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
 }
\ No newline at end of file
@@ -2,12 +2,18 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
+import java.util.List;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
+public interface UCSBDiningCommonsMenuItemRepository extends PagingAndSortingRepository<UCSBDiningCommonsMenuItem, Long> {
+    // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+    List<UCSBDiningCommonsMenuItem> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
     Iterable<UCSBDiningCommonsMenuItem> findAllBydiningCommonsCode(String diningCommonsCode);
 }
\ No newline at end of file
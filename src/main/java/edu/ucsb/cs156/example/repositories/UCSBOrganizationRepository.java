@@ -2,10 +2,14 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
-    
+public interface UCSBOrganizationRepository extends PagingAndSortingRepository<UCSBOrganization, String> {
+  // Page of rows after a key, for the /stream endpoint (see EntityCrud.keysetReader)
+  List<UCSBOrganization> findByOrgCodeGreaterThanOrderByOrgCode(String orgCode, Pageable pageable);
 }
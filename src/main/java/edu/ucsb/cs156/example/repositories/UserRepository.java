@@ -1,12 +1,23 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends PagingAndSortingRepository<User, Long> {
   Optional<User> findByEmail(String email);
+
+  // Pages of rows after a key, for the streamed user list
+  List<User> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+  @Query("select u from users u where u.id > :after"
+      + " and (u.email like concat(:q, '%') or u.fullName like concat(:q, '%')) order by u.id")
+  List<User> findPageAfterWithPrefix(@Param("after") long after, @Param("q") String q, Pageable pageable);
 }
@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.config.SchedulingConfig;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Physically removes soft-deleted articles once they are older than
+ * <code>app.articles.purge.retentionDays</code>.
+ *
+ * Every <code>app.articles.purge.checkIntervalMillis</code> the purge checks
+ * whether the local time is within the off-peak hours
+ * <code>[offPeakStartHour, offPeakEndHour)</code> (the range may wrap past
+ * midnight). If it is, it deletes expired rows <code>batchSize</code> at a
+ * time, each batch in its own short transaction with a pause of
+ * <code>pauseMillis</code> in between, until none are left or the off-peak
+ * hours end. A check interval of 0 turns the purge off. The checks run on
+ * the shared background scheduler ({@link SchedulingConfig}).
+ *
+ * The off-peak window follows this JVM's clock, but which rows have expired
+ * is decided in SQL against the database clock that stamped
+ * <code>deleted_at</code>, so clock skew between the two cannot purge an
+ * article early.
+ */
+@Service
+@Slf4j
+public class ArticlePurgeService {
+
+  @Autowired
+  ArticleRepository articleRepository;
+
+  @Autowired
+  @Qualifier(SchedulingConfig.BACKGROUND_TASK_SCHEDULER)
+  TaskScheduler taskScheduler;
+
+  private final int retentionDays;
+  private final int batchSize;
+  private final int offPeakStartHour;
+  private final int offPeakEndHour;
+  private final long pauseMillis;
+  private final long checkIntervalMillis;
+  private final LongSupplier clock;
+  private ScheduledFuture<?> purgeTask;
+
+  @Autowired
+  public ArticlePurgeService(
+      @Value("${app.articles.purge.retentionDays:30}") int retentionDays,
+      @Value("${app.articles.purge.batchSize:500}") int batchSize,
+      @Value("${app.articles.purge.offPeakStartHour:2}") int offPeakStartHour,
+      @Value("${app.articles.purge.offPeakEndHour:5}") int offPeakEndHour,
+      @Value("${app.articles.purge.pauseMillis:200}") long pauseMillis,
+      @Value("${app.articles.purge.checkIntervalMillis:900000}") long checkIntervalMillis) {
+    this(retentionDays, batchSize, offPeakStartHour, offPeakEndHour, pauseMillis, checkIntervalMillis,
+        System::currentTimeMillis);
+  }
+
+  ArticlePurgeService(int retentionDays, int batchSize, int offPeakStartHour, int offPeakEndHour,
+      long pauseMillis, long checkIntervalMillis, LongSupplier clock) {
+    this.retentionDays = retentionDays;
+    this.batchSize = batchSize;
+    this.offPeakStartHour = offPeakStartHour;
+    this.offPeakEndHour = offPeakEndHour;
+    this.pauseMillis = pauseMillis;
+    this.checkIntervalMillis = checkIntervalMillis;
+    this.clock = clock;
+  }
+
+  @PostConstruct
+  void start() {
+    if (checkIntervalMillis <= 0) {
+      return;
+    }
+    purgeTask = taskScheduler.scheduleWithFixedDelay(this::purgeQuietly,
+        Instant.now().plusMillis(checkIntervalMillis), Duration.ofMillis(checkIntervalMillis));
+  }
+
+  @PreDestroy
+  void stop() {
+    if (purgeTask != null) {
+      // interrupts the pause between batches of a purge in progress
+      purgeTask.cancel(true);
+    }
+  }
+
+  /**
+   * Removes expired articles while within the off-peak hours.
+   *
+   * @return the number of articles removed
+   */
+  long purge() throws InterruptedException {
+    long purged = 0;
+    while (offPeak()) {
+      int removed = articleRepository.purgeDeletedOlderThan(retentionDays, batchSize);
+      purged += removed;
+      if (removed < batchSize) {
+        break;
+      }
+      Thread.sleep(pauseMillis);
+    }
+    if (purged > 0) {
+      log.info("Purged {} articles deleted more than {} days ago", purged, retentionDays);
+    }
+    return purged;
+  }
+
+  private void purgeQuietly() {
+    try {
+      purge();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("Purging deleted articles failed", e);
+    }
+  }
+
+  boolean offPeak() {
+    int hour = now().getHour();
+    if (offPeakStartHour <= offPeakEndHour) {
+      return hour >= offPeakStartHour && hour < offPeakEndHour;
+    }
+    return hour >= offPeakStartHour || hour < offPeakEndHour;
+  }
+
+  private LocalDateTime now() {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong()), ZoneId.systemDefault());
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.models.ChangesPage;
+import edu.ucsb.cs156.example.repositories.ChangeLogEntryRepository;
+import edu.ucsb.cs156.example.repositories.ChangeLogLockRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records entity changes in the <code>changelog</code> table and reads them
+ * back for <code>/api/changes</code>.
+ *
+ * Changes are recorded in the same transaction that saves the entity, by
+ * {@link edu.ucsb.cs156.example.crud.EntityCrud} for the entity controllers,
+ * by the review write-behind buffer and by the menu item import, so an entry
+ * exists exactly when its change was committed. Before inserting, a writer
+ * locks the single <code>changelog_lock</code> row and holds it until it
+ * commits. Sequence numbers are therefore committed in increasing order, on
+ * every instance, and a client that has read up to some <code>seq</code>
+ * can never later find a smaller one. Only the tail of each writing
+ * transaction is serialized; the entity writes before it are not.
+ *
+ * The lock row is created at startup, before any request can write, so
+ * writers only ever lock it and never race to insert it.
+ */
+@Service
+@Slf4j
+public class ChangeFeedService {
+
+  @Autowired
+  ChangeLogEntryRepository changeLogEntryRepository;
+
+  @Autowired
+  ChangeLogLockRepository changeLogLockRepository;
+
+  @PostConstruct
+  void seedLock() {
+    try {
+      if (changeLogLockRepository.insertLockIfMissing() > 0) {
+        log.info("Created the changelog_lock row");
+      }
+    } catch (DataIntegrityViolationException e) {
+      // another instance starting at the same time inserted it first
+      log.info("changelog_lock row was created by another instance");
+    }
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void record(String entityType, Object entityId, ChangeType changeType) {
+    recordAll(entityType, List.of(entityId), changeType);
+  }
+
+  /**
+   * Records one change per id. Must be called inside the transaction that
+   * made the changes, and as late in it as possible: the feed stays locked
+   * from here until that transaction ends.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void recordAll(String entityType, Collection<?> entityIds, ChangeType changeType) {
+    if (entityIds.isEmpty()) {
+      return;
+    }
+    lockFeed();
+    LocalDateTime now = LocalDateTime.now();
+    changeLogEntryRepository.saveAll(entityIds.stream()
+        .map(id -> ChangeLogEntry.builder()
+            .entityType(entityType)
+            .entityId(String.valueOf(id))
+            .changeType(changeType)
+            .changedAt(now)
+            .build())
+        .toList());
+  }
+
+  private void lockFeed() {
+    if (changeLogLockRepository.lockFeed().isEmpty()) {
+      throw new IllegalStateException("The changelog_lock row is missing; it is created at startup");
+    }
+  }
+
+  /**
+   * Up to <code>limit</code> changes with <code>seq</code> greater than
+   * <code>since</code>, oldest first.
+   */
+  public ChangesPage changesSince(long since, int limit) {
+    List<ChangeLogEntry> changes = changeLogEntryRepository.findBySeqGreaterThanOrderBySeq(since,
+        PageRequest.of(0, limit + 1));
+    boolean hasMore = changes.size() > limit;
+    if (hasMore) {
+      changes = changes.subList(0, limit);
+    }
+    return ChangesPage.builder()
+        .changes(changes)
+        .nextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq())
+        .hasMore(hasMore)
+        .build();
+  }
+}
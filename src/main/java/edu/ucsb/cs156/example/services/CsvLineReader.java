@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated records one line at a time, holding at most one
+ * line of <code>maxLineLength</code> characters in memory.
+ *
+ * Fields may be quoted, and quoted fields may contain commas and doubled
+ * quotes, but not line breaks. Lines may end in <code>\n</code> or
+ * <code>\r\n</code>; the <code>\r</code> does not count toward
+ * <code>maxLineLength</code>.
+ */
+class CsvLineReader {
+
+  private final Reader reader;
+  private final int maxLineLength;
+  private final StringBuilder line = new StringBuilder();
+  private long lineNumber;
+
+  CsvLineReader(Reader reader, int maxLineLength) {
+    this.reader = reader;
+    this.maxLineLength = maxLineLength;
+  }
+
+  /** The number of the line last returned by {@link #next}, counting from 1. */
+  long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * The fields of the next line, or null at the end of the input.
+   *
+   * @throws IllegalArgumentException if the line is too long or has an
+   *         unterminated quoted field; the reader has still moved past it
+   */
+  List<String> next() throws IOException {
+    line.setLength(0);
+    boolean tooLong = false;
+    // A \r is held back until we know it does not end the line
+    boolean carriageReturn = false;
+    int c;
+    while ((c = reader.read()) != -1 && c != '\n') {
+      if (carriageReturn) {
+        tooLong |= !append('\r');
+      }
+      carriageReturn = c == '\r';
+      if (!carriageReturn) {
+        tooLong |= !append((char) c);
+      }
+    }
+    if (c == -1 && line.length() == 0 && !carriageReturn && !tooLong) {
+      return null;
+    }
+    lineNumber++;
+    if (tooLong) {
+      throw new IllegalArgumentException("line is longer than %d characters".formatted(maxLineLength));
+    }
+    return split(line);
+  }
+
+  // False, and the character dropped, once the line is full
+  private boolean append(char c) {
+    if (line.length() >= maxLineLength) {
+      return false;
+    }
+    line.append(c);
+    return true;
+  }
+
+  static List<String> split(CharSequence line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char ch = line.charAt(i);
+      if (quoted) {
+        if (ch != '"') {
+          field.append(ch);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (ch == '"' && field.length() == 0) {
+        quoted = true;
+      } else if (ch == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(ch);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("unterminated quoted field");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
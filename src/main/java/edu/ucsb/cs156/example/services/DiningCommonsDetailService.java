@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsDetail;
+import edu.ucsb.cs156.example.models.MenuItemDetail;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+/**
+ * Builds the dining commons detail document and caches it per commons code.
+ *
+ * A detail is read with three statements: the commons by primary key, its
+ * menu items through the <code>diningCommonsCode</code> index, and one
+ * grouped query over <code>menuitemreviews_item_date_idx</code> for the
+ * items' rating summaries. Cached details live for
+ * <code>app.diningCommons.detailCacheTtlMillis</code> and are evicted by the
+ * commons and menu item controllers when those change; new reviews show up
+ * in the ratings once the cached detail expires.
+ */
+@Service
+public class DiningCommonsDetailService {
+
+  private static final String NO_STATION = "";
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+  // Bumped on every eviction so a load that raced with one is not cached
+  private final AtomicLong generation = new AtomicLong();
+
+  private static class Cached {
+    final DiningCommonsDetail detail;
+    final long expiresAt;
+
+    Cached(DiningCommonsDetail detail, long expiresAt) {
+      this.detail = detail;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  @Autowired
+  public DiningCommonsDetailService(@Value("${app.diningCommons.detailCacheTtlMillis:60000}") long ttlMillis) {
+    this(ttlMillis, System::currentTimeMillis);
+  }
+
+  DiningCommonsDetailService(long ttlMillis, LongSupplier clock) {
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  public DiningCommonsDetail getDetail(String code) {
+    long now = clock.getAsLong();
+    Cached cached = cache.get(code);
+    if (cached != null && cached.expiresAt > now) {
+      return cached.detail;
+    }
+    long loadedAt = generation.get();
+    DiningCommonsDetail detail = load(code);
+    if (ttlMillis > 0 && generation.get() == loadedAt) {
+      cache.put(code, new Cached(detail, now + ttlMillis));
+    }
+    return detail;
+  }
+
+  public void evict(String code) {
+    generation.incrementAndGet();
+    if (code != null) {
+      cache.remove(code);
+    }
+  }
+
+  public void evictAll() {
+    generation.incrementAndGet();
+    cache.clear();
+  }
+
+  private DiningCommonsDetail load(String code) {
+    UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>();
+    ucsbDiningCommonsMenuItemRepository.findAllBydiningCommonsCode(code).forEach(items::add);
+    Map<Long, MenuItemRating> ratings = new HashMap<>();
+    if (!items.isEmpty()) {
+      List<Long> ids = items.stream().map(UCSBDiningCommonsMenuItem::getId).toList();
+      for (MenuItemRating rating : menuItemReviewRepository.findRatingsByMenuItemIds(ids)) {
+        ratings.put(rating.getMenuItemId(), rating);
+      }
+    }
+    Map<String, List<MenuItemDetail>> stations = new TreeMap<>();
+    for (UCSBDiningCommonsMenuItem item : items) {
+      String station = item.getStation() == null ? NO_STATION : item.getStation();
+      MenuItemRating rating = ratings.get(item.getId());
+      stations.computeIfAbsent(station, s -> new ArrayList<>()).add(MenuItemDetail.builder()
+          .id(item.getId())
+          .name(item.getName())
+          .reviewCount(rating == null ? 0 : rating.getReviewCount())
+          .averageStars(rating == null ? null : rating.getAverageStars())
+          .build());
+    }
+    stations.values().forEach(stationItems -> stationItems.sort(
+        Comparator.comparing(MenuItemDetail::getName, Comparator.nullsLast(Comparator.naturalOrder()))));
+    return DiningCommonsDetail.builder()
+        .commons(commons)
+        .stations(stations)
+        .build();
+  }
+}
@@ -0,0 +1,261 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.config.SchedulingConfig;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.HelpRequestStatsSnapshot;
+import edu.ucsb.cs156.example.models.HelpRequestBacklog;
+import edu.ucsb.cs156.example.models.HelpRequestSolve;
+import edu.ucsb.cs156.example.models.HelpRequestStats;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestStatsSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rolling time-to-solve statistics and open backlog of help requests, per
+ * team and overall, kept in memory so that reading them never scans the
+ * <code>helprequest</code> table.
+ *
+ * At startup the open counts are read with one grouped query and the solves
+ * of the last <code>app.helpRequests.stats.windowMinutes</code> through
+ * <code>helprequest_solved_time_idx</code>; after that the help request
+ * controller reports every create, update and delete. Solves are kept in
+ * lock-free queues in solve order and dropped from the head once they
+ * leave the window; the median and p90 are computed from what is left when
+ * the statistics are read. Every
+ * <code>app.helpRequests.stats.snapshotIntervalMillis</code> the current
+ * figures are also saved as {@link HelpRequestStatsSnapshot} rows.
+ *
+ * A request that is reopened keeps its earlier solve in the window until
+ * the solve expires.
+ */
+@Service
+@Slf4j
+public class HelpRequestStatsService {
+
+  static final String ALL_TEAMS = "";
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  HelpRequestStatsSnapshotRepository helpRequestStatsSnapshotRepository;
+
+  @Autowired
+  @Qualifier(SchedulingConfig.BACKGROUND_TASK_SCHEDULER)
+  TaskScheduler taskScheduler;
+
+  private final long windowMinutes;
+  private final long snapshotIntervalMillis;
+  private final LongSupplier clock;
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+  private ScheduledFuture<?> snapshotTask;
+
+  private static class Solve {
+    final long solvedAt;
+    final long seconds;
+
+    Solve(long solvedAt, long seconds) {
+      this.solvedAt = solvedAt;
+      this.seconds = seconds;
+    }
+  }
+
+  private static class Window {
+    final ConcurrentLinkedQueue<Solve> solves = new ConcurrentLinkedQueue<>();
+    final AtomicLong open = new AtomicLong();
+  }
+
+  @Autowired
+  public HelpRequestStatsService(
+      @Value("${app.helpRequests.stats.windowMinutes:10080}") long windowMinutes,
+      @Value("${app.helpRequests.stats.snapshotIntervalMillis:300000}") long snapshotIntervalMillis) {
+    this(windowMinutes, snapshotIntervalMillis, System::currentTimeMillis);
+  }
+
+  HelpRequestStatsService(long windowMinutes, long snapshotIntervalMillis, LongSupplier clock) {
+    this.windowMinutes = windowMinutes;
+    this.snapshotIntervalMillis = snapshotIntervalMillis;
+    this.clock = clock;
+  }
+
+  @PostConstruct
+  void start() {
+    load();
+    if (snapshotIntervalMillis <= 0) {
+      return;
+    }
+    snapshotTask = taskScheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+        Instant.now().plusMillis(snapshotIntervalMillis), Duration.ofMillis(snapshotIntervalMillis));
+  }
+
+  @PreDestroy
+  void stop() {
+    if (snapshotTask != null) {
+      snapshotTask.cancel(false);
+    }
+  }
+
+  void load() {
+    windows.clear();
+    window(ALL_TEAMS);
+    for (HelpRequestBacklog backlog : helpRequestRepository.countOpenByTeam()) {
+      adjustOpen(backlog.getTeamId(), backlog.getOpenCount());
+    }
+    List<HelpRequestSolve> solves = helpRequestRepository.findSolvedSince(toLocal(cutoff()));
+    for (HelpRequestSolve solve : solves) {
+      record(solve.getTeamId(), solve.getRequestTime(), solve.getSolvedTime());
+    }
+    log.info("Help request stats loaded: {} open, {} solved in the last {} minutes",
+        windows.get(ALL_TEAMS).open.get(), solves.size(), windowMinutes);
+  }
+
+  public void created(HelpRequest helpRequest) {
+    if (!helpRequest.getSolved()) {
+      adjustOpen(helpRequest.getTeamId(), 1);
+    }
+  }
+
+  public void deleted(HelpRequest helpRequest) {
+    if (!helpRequest.getSolved()) {
+      adjustOpen(helpRequest.getTeamId(), -1);
+    }
+  }
+
+  public void updated(String oldTeamId, boolean wasSolved, HelpRequest helpRequest) {
+    if (!wasSolved) {
+      adjustOpen(oldTeamId, -1);
+    }
+    if (!helpRequest.getSolved()) {
+      adjustOpen(helpRequest.getTeamId(), 1);
+    } else if (!wasSolved) {
+      record(helpRequest.getTeamId(), helpRequest.getRequestTime(), helpRequest.getSolvedTime());
+    }
+  }
+
+  /**
+   * The statistics for all teams (<code>teamId</code> null) followed by
+   * those of each team, ordered by team.
+   */
+  public List<HelpRequestStats> stats() {
+    long cutoff = cutoff();
+    List<HelpRequestStats> stats = new ArrayList<>();
+    stats.add(stats(null, window(ALL_TEAMS), cutoff));
+    new TreeMap<>(windows).forEach((teamId, window) -> {
+      if (!teamId.equals(ALL_TEAMS)) {
+        stats.add(stats(teamId, window, cutoff));
+      }
+    });
+    return stats;
+  }
+
+  void snapshot() {
+    LocalDateTime takenAt = toLocal(clock.getAsLong());
+    List<HelpRequestStatsSnapshot> rows = stats().stream()
+        .map(s -> HelpRequestStatsSnapshot.builder()
+            .takenAt(takenAt)
+            .teamId(s.getTeamId())
+            .windowMinutes(s.getWindowMinutes())
+            .solvedCount(s.getSolvedCount())
+            .medianSolveSeconds(s.getMedianSolveSeconds())
+            .p90SolveSeconds(s.getP90SolveSeconds())
+            .openBacklog(s.getOpenBacklog())
+            .build())
+        .toList();
+    helpRequestStatsSnapshotRepository.saveAll(rows);
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (Exception e) {
+      log.error("Saving help request stats snapshot failed", e);
+    }
+  }
+
+  private HelpRequestStats stats(String teamId, Window window, long cutoff) {
+    Solve head;
+    while ((head = window.solves.peek()) != null && head.solvedAt < cutoff) {
+      window.solves.remove(head);
+    }
+    long[] seconds = window.solves.stream()
+        .filter(s -> s.solvedAt >= cutoff)
+        .mapToLong(s -> s.seconds)
+        .sorted()
+        .toArray();
+    return HelpRequestStats.builder()
+        .teamId(teamId)
+        .windowMinutes(windowMinutes)
+        .solvedCount(seconds.length)
+        .medianSolveSeconds(percentile(seconds, 50))
+        .p90SolveSeconds(percentile(seconds, 90))
+        .openBacklog(Math.max(0, window.open.get()))
+        .build();
+  }
+
+  // Nearest-rank percentile of sorted values
+  private static Long percentile(long[] sorted, int p) {
+    if (sorted.length == 0) {
+      return null;
+    }
+    int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)];
+  }
+
+  private void adjustOpen(String teamId, long delta) {
+    window(ALL_TEAMS).open.addAndGet(delta);
+    if (teamId != null && !teamId.isEmpty()) {
+      window(teamId).open.addAndGet(delta);
+    }
+  }
+
+  private void record(String teamId, LocalDateTime requestTime, LocalDateTime solvedTime) {
+    if (requestTime == null || solvedTime == null) {
+      return;
+    }
+    Solve solve = new Solve(toMillis(solvedTime), Math.max(0, Duration.between(requestTime, solvedTime).getSeconds()));
+    window(ALL_TEAMS).solves.add(solve);
+    if (teamId != null && !teamId.isEmpty()) {
+      window(teamId).solves.add(solve);
+    }
+  }
+
+  private Window window(String key) {
+    return windows.computeIfAbsent(key, k -> new Window());
+  }
+
+  private long cutoff() {
+    return clock.getAsLong() - TimeUnit.MINUTES.toMillis(windowMinutes);
+  }
+
+  private static long toMillis(LocalDateTime time) {
+    return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  private static LocalDateTime toLocal(long millis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+  }
+}
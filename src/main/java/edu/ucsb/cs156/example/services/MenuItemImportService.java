@@ -0,0 +1,460 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.multipart.MultipartFile;
+
+import edu.ucsb.cs156.example.config.SchedulingConfig;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ImportJobStatus;
+import edu.ucsb.cs156.example.models.ImportJobStatus.State;
+import edu.ucsb.cs156.example.models.ImportLineError;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background import of dining commons menu items from CSV.
+ *
+ * The upload is copied to a temporary file (the multipart part is removed
+ * when the request ends) and read back one line at a time. Jobs run one
+ * after another, in the order they were started, on the shared background
+ * scheduler ({@link SchedulingConfig}), so at most one line of
+ * <code>app.import.maxLineLength</code> characters, one batch of
+ * <code>app.import.batchSize</code> rows and <code>app.import.maxErrors</code>
+ * line errors are held in memory whatever the size of the file.
+ *
+ * The first line must name the <code>diningCommonsCode</code>,
+ * <code>name</code> and <code>station</code> columns, in any order; other
+ * columns are ignored. A line whose fields are blank or whose commons does
+ * not exist is reported and skipped. Valid rows are inserted with one JDBC
+ * batch per <code>batchSize</code> rows, each in its own transaction, and
+ * recorded in the change feed.
+ *
+ * Cancelling a job stops it reading the file; rows already read, including
+ * those of the batch in progress, are still inserted. Shutting down cancels
+ * every job, and jobs still queued are finished and their uploads deleted
+ * at once rather than left for the scheduler.
+ */
+@Service
+@Slf4j
+public class MenuItemImportService {
+
+  static final String INSERT_SQL =
+      "insert into ucsbdiningcommonsmenuitem (dining_commons_code, name, station, version) values (?, ?, ?, 0)";
+
+  private static final List<String> COLUMNS = List.of("diningCommonsCode", "name", "station");
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ChangeFeedService changeFeedService;
+
+  @Autowired
+  TransactionOperations transactionOperations;
+
+  @Autowired
+  DiningCommonsDetailService diningCommonsDetailService;
+
+  @Autowired
+  @Qualifier(SchedulingConfig.BACKGROUND_TASK_SCHEDULER)
+  TaskScheduler taskScheduler;
+
+  private final int batchSize;
+  private final int maxErrors;
+  private final int maxJobs;
+  private final int maxLineLength;
+  // Oldest first, so finished jobs past maxJobs are forgotten in order
+  private final Map<String, Job> jobs = new LinkedHashMap<>();
+  // Jobs waiting to run, and whether a task is running them; both guarded by jobs
+  private final Deque<Job> queue = new ArrayDeque<>();
+  private boolean draining;
+
+  private static class Job {
+    final String id = UUID.randomUUID().toString();
+    final String fileName;
+    final long totalBytes;
+    final Path file;
+    final LocalDateTime createdAt = LocalDateTime.now();
+    final List<ImportLineError> errors = new ArrayList<>();
+    volatile State state = State.QUEUED;
+    volatile boolean cancelled;
+    volatile long bytesRead;
+    volatile long linesRead;
+    volatile long inserted;
+    volatile long errorCount;
+    volatile String message;
+    volatile LocalDateTime finishedAt;
+
+    Job(String fileName, long totalBytes, Path file) {
+      this.fileName = fileName;
+      this.totalBytes = totalBytes;
+      this.file = file;
+    }
+
+    boolean finished() {
+      return state != State.QUEUED && state != State.RUNNING;
+    }
+  }
+
+  private static class Row {
+    final long line;
+    final String diningCommonsCode;
+    final String name;
+    final String station;
+
+    Row(long line, String diningCommonsCode, String name, String station) {
+      this.line = line;
+      this.diningCommonsCode = diningCommonsCode;
+      this.name = name;
+      this.station = station;
+    }
+  }
+
+  @Autowired
+  public MenuItemImportService(
+      @Value("${app.import.batchSize:500}") int batchSize,
+      @Value("${app.import.maxErrors:1000}") int maxErrors,
+      @Value("${app.import.maxJobs:20}") int maxJobs,
+      @Value("${app.import.maxLineLength:4096}") int maxLineLength) {
+    this.batchSize = batchSize;
+    this.maxErrors = maxErrors;
+    this.maxJobs = maxJobs;
+    this.maxLineLength = maxLineLength;
+  }
+
+  @PreDestroy
+  void stop() {
+    List<Job> queued;
+    synchronized (jobs) {
+      jobs.values().forEach(job -> job.cancelled = true);
+      queued = new ArrayList<>(queue);
+      queue.clear();
+    }
+    queued.forEach(job -> finish(job, State.CANCELLED));
+  }
+
+  /**
+   * Saves the upload and queues it for import.
+   *
+   * @return the status of the new job, to be polled with {@link #status}
+   */
+  public ImportJobStatus start(MultipartFile upload) throws IOException {
+    if (upload.isEmpty()) {
+      throw new BadRequestException("The uploaded file is empty");
+    }
+    Path file = Files.createTempFile("menuitem-import-", ".csv");
+    try {
+      upload.transferTo(file);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    Job job = new Job(upload.getOriginalFilename(), upload.getSize(), file);
+    synchronized (jobs) {
+      jobs.put(job.id, job);
+      forgetFinishedJobs();
+      queue.add(job);
+      if (!draining) {
+        draining = true;
+        taskScheduler.schedule(this::drain, Instant.now());
+      }
+    }
+    return toStatus(job);
+  }
+
+  public ImportJobStatus status(String id) {
+    return toStatus(job(id));
+  }
+
+  /**
+   * Asks the job to stop reading after the current line; rows already read
+   * are inserted. Cancelling a finished job has no effect.
+   */
+  public ImportJobStatus cancel(String id) {
+    Job job = job(id);
+    job.cancelled = true;
+    return toStatus(job);
+  }
+
+  private Job job(String id) {
+    synchronized (jobs) {
+      Job job = jobs.get(id);
+      if (job == null) {
+        throw new EntityNotFoundException(ImportJobStatus.class, id);
+      }
+      return job;
+    }
+  }
+
+  private void forgetFinishedJobs() {
+    Iterator<Job> it = jobs.values().iterator();
+    int excess = jobs.size() - maxJobs;
+    while (excess > 0 && it.hasNext()) {
+      if (it.next().finished()) {
+        it.remove();
+        excess--;
+      }
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      Job job;
+      synchronized (jobs) {
+        job = queue.poll();
+        if (job == null) {
+          draining = false;
+          return;
+        }
+      }
+      run(job);
+    }
+  }
+
+  private void run(Job job) {
+    if (job.cancelled) {
+      finish(job, State.CANCELLED);
+      return;
+    }
+    job.state = State.RUNNING;
+    try (CountingInputStream in = new CountingInputStream(Files.newInputStream(job.file))) {
+      CsvLineReader reader = new CsvLineReader(
+          new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), maxLineLength);
+      int[] columns = readHeader(reader);
+      if (columns == null) {
+        job.message = "The first line must name the diningCommonsCode, name and station columns";
+        finish(job, State.FAILED);
+        return;
+      }
+      Set<String> diningCommonsCodes = new HashSet<>();
+      for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+        diningCommonsCodes.add(commons.getCode());
+      }
+      List<Row> batch = new ArrayList<>(batchSize);
+      while (!job.cancelled) {
+        List<String> fields;
+        try {
+          fields = reader.next();
+        } catch (IllegalArgumentException e) {
+          error(job, reader.getLineNumber(), e.getMessage());
+          continue;
+        } finally {
+          job.linesRead = reader.getLineNumber();
+          job.bytesRead = in.count;
+        }
+        if (fields == null) {
+          break;
+        }
+        Row row = toRow(job, reader.getLineNumber(), fields, columns, diningCommonsCodes);
+        if (row != null) {
+          batch.add(row);
+        }
+        if (batch.size() >= batchSize) {
+          insert(job, batch);
+        }
+      }
+      insert(job, batch);
+      finish(job, job.cancelled ? State.CANCELLED : State.COMPLETED);
+    } catch (Exception e) {
+      log.error("Menu item import {} failed", job.id, e);
+      job.message = e.getMessage();
+      finish(job, State.FAILED);
+    }
+  }
+
+  private void finish(Job job, State state) {
+    try {
+      Files.deleteIfExists(job.file);
+    } catch (IOException e) {
+      log.warn("Could not delete {}: {}", job.file, e.getMessage());
+    }
+    if (job.inserted > 0) {
+      diningCommonsDetailService.evictAll();
+    }
+    job.finishedAt = LocalDateTime.now();
+    job.state = state;
+    log.info("Menu item import {} of {} {}: {} lines, {} inserted, {} errors", job.id, job.fileName, state,
+        job.linesRead, job.inserted, job.errorCount);
+  }
+
+  // Index of each of COLUMNS in the header, or null if one is missing
+  private int[] readHeader(CsvLineReader reader) throws IOException {
+    List<String> header;
+    try {
+      header = reader.next();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    if (header == null) {
+      return null;
+    }
+    List<String> names = new ArrayList<>();
+    for (String name : header) {
+      names.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+    }
+    int[] columns = new int[COLUMNS.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = names.indexOf(COLUMNS.get(i).toLowerCase(Locale.ROOT));
+      if (columns[i] < 0) {
+        return null;
+      }
+    }
+    return columns;
+  }
+
+  private Row toRow(Job job, long line, List<String> fields, int[] columns, Set<String> diningCommonsCodes) {
+    if (fields.size() == 1 && fields.get(0).isBlank()) {
+      return null;
+    }
+    String[] values = new String[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = columns[i] < fields.size() ? fields.get(columns[i]).trim() : "";
+      if (values[i].isEmpty()) {
+        error(job, line, "%s is missing".formatted(COLUMNS.get(i)));
+        return null;
+      }
+    }
+    if (!diningCommonsCodes.contains(values[0])) {
+      error(job, line, "Unknown diningCommonsCode %s".formatted(values[0]));
+      return null;
+    }
+    return new Row(line, values[0], values[1], values[2]);
+  }
+
+  private void insert(Job job, List<Row> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      transactionOperations.executeWithoutResult(status -> {
+        List<Long> ids = insertRows(batch);
+        changeFeedService.recordAll("ucsbdiningcommonsmenuitem", ids, ChangeType.INSERT);
+      });
+      job.inserted += batch.size();
+    } catch (RuntimeException e) {
+      log.warn("Menu item import {} could not insert lines {} to {}: {}", job.id, batch.get(0).line,
+          batch.get(batch.size() - 1).line, e.getMessage());
+      for (Row row : batch) {
+        error(job, row.line, "not inserted: " + e.getMessage());
+      }
+    }
+    batch.clear();
+  }
+
+  // Runs on the connection of the surrounding transaction
+  private List<Long> insertRows(List<Row> batch) {
+    return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] { "id" })) {
+        for (Row row : batch) {
+          statement.setString(1, row.diningCommonsCode);
+          statement.setString(2, row.name);
+          statement.setString(3, row.station);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        List<Long> ids = new ArrayList<>(batch.size());
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+          while (keys.next()) {
+            ids.add(keys.getLong(1));
+          }
+        }
+        return ids;
+      }
+    });
+  }
+
+  private void error(Job job, long line, String message) {
+    job.errorCount++;
+    synchronized (job.errors) {
+      if (job.errors.size() < maxErrors) {
+        job.errors.add(ImportLineError.builder().line(line).message(message).build());
+      }
+    }
+  }
+
+  private static ImportJobStatus toStatus(Job job) {
+    List<ImportLineError> errors;
+    synchronized (job.errors) {
+      errors = List.copyOf(job.errors);
+    }
+    return ImportJobStatus.builder()
+        .id(job.id)
+        .fileName(job.fileName)
+        .state(job.state)
+        .totalBytes(job.totalBytes)
+        .bytesRead(job.bytesRead)
+        .linesRead(job.linesRead)
+        .inserted(job.inserted)
+        .errorCount(job.errorCount)
+        .errors(errors)
+        .message(job.message)
+        .createdAt(job.createdAt)
+        .finishedAt(job.finishedAt)
+        .build();
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    volatile long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.TopMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory leaderboard of the best-rated menu items, overall and per
+ * dining commons.
+ *
+ * Items are ranked by a Bayesian-smoothed rating,
+ * <code>(priorWeight * priorMean + sum of stars) / (priorWeight + reviews)</code>,
+ * so an item with a single five-star review does not outrank one with
+ * hundreds of good reviews. The prior is fixed by configuration, which keeps
+ * every item's score independent of the others and lets each review change
+ * be applied by moving just that item.
+ *
+ * The leaderboard is rebuilt from the database when the application is
+ * ready and then kept current by the review and menu item controllers (and
+ * the review write-behind buffer). Writers are serialized; {@link #top}
+ * reads the concurrent skip lists without locking. An item that moves is
+ * added at its new position before it is removed from the old one, so a
+ * reader may meet it twice (and skips the second) but never misses it. A
+ * rebuild fills a new
+ * set of maps and publishes it with one volatile write, so a reader sees
+ * either the old leaderboard or the new one, never a half-filled one.
+ */
+@Service
+@Slf4j
+public class MenuItemLeaderboardService {
+
+  static final String ALL_COMMONS = "";
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  private final double priorMean;
+  private final double priorWeight;
+
+  private static class Ranked {
+    final long id;
+    final String name;
+    final String diningCommonsCode;
+    final String station;
+    final long reviewCount;
+    final long starSum;
+    final double score;
+
+    Ranked(long id, String name, String diningCommonsCode, String station, long reviewCount, long starSum,
+        double score) {
+      this.id = id;
+      this.name = name;
+      this.diningCommonsCode = diningCommonsCode;
+      this.station = station;
+      this.reviewCount = reviewCount;
+      this.starSum = starSum;
+      this.score = score;
+    }
+  }
+
+  private static final Comparator<Ranked> BEST_FIRST = Comparator
+      .comparingDouble((Ranked r) -> r.score).reversed()
+      .thenComparingLong(r -> r.id);
+
+  private static class Leaderboard {
+    // Current entry of every reviewed item, and the same entries ordered per commons.
+    // The boards map each entry to itself so that one with an unchanged score and
+    // commons is replaced by a single put.
+    final Map<Long, Ranked> byId = new ConcurrentHashMap<>();
+    final Map<String, NavigableMap<Ranked, Ranked>> boards = new ConcurrentHashMap<>();
+
+    void put(Ranked r) {
+      byId.put(r.id, r);
+      board(ALL_COMMONS).put(r, r);
+      if (r.diningCommonsCode != null) {
+        board(r.diningCommonsCode).put(r, r);
+      }
+    }
+
+    void replace(Ranked old, Ranked r) {
+      put(r);
+      // A key comparing equal to old is now r's entry and must stay
+      boolean samePlace = BEST_FIRST.compare(old, r) == 0;
+      if (!samePlace) {
+        board(ALL_COMMONS).remove(old);
+      }
+      if (old.diningCommonsCode != null
+          && !(samePlace && Objects.equals(old.diningCommonsCode, r.diningCommonsCode))) {
+        board(old.diningCommonsCode).remove(old);
+      }
+    }
+
+    void remove(Ranked r) {
+      byId.remove(r.id);
+      board(ALL_COMMONS).remove(r);
+      if (r.diningCommonsCode != null) {
+        board(r.diningCommonsCode).remove(r);
+      }
+    }
+
+    private NavigableMap<Ranked, Ranked> board(String commons) {
+      return boards.computeIfAbsent(commons, c -> new ConcurrentSkipListMap<>(BEST_FIRST));
+    }
+  }
+
+  // Replaced whole by rebuild(); updated in place by the other writers
+  private volatile Leaderboard leaderboard = new Leaderboard();
+
+  public MenuItemLeaderboardService(
+      @Value("${app.leaderboard.priorMean:3.0}") double priorMean,
+      @Value("${app.leaderboard.priorWeight:5}") double priorWeight) {
+    this.priorMean = priorMean;
+    this.priorWeight = priorWeight;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    Map<Long, UCSBDiningCommonsMenuItem> items = new HashMap<>();
+    ucsbDiningCommonsMenuItemRepository.findAll().forEach(item -> items.put(item.getId(), item));
+    Leaderboard rebuilt = new Leaderboard();
+    for (MenuItemRating rating : menuItemReviewRepository.findAllRatings()) {
+      UCSBDiningCommonsMenuItem item = items.get(rating.getMenuItemId());
+      if (item != null && rating.getStarSum() != null) {
+        rebuilt.put(ranked(item, rating.getReviewCount(), rating.getStarSum()));
+      }
+    }
+    leaderboard = rebuilt;
+    log.info("Menu item leaderboard rebuilt with {} rated items", rebuilt.byId.size());
+  }
+
+  /**
+   * The best <code>n</code> items, for one commons or (when
+   * <code>commons</code> is null or blank) across all commons.
+   */
+  public List<TopMenuItem> top(String commons, int n) {
+    NavigableMap<Ranked, Ranked> board = leaderboard.boards.get(
+        commons == null || commons.isBlank() ? ALL_COMMONS : commons);
+    List<TopMenuItem> top = new ArrayList<>(n);
+    if (board == null) {
+      return top;
+    }
+    Set<Long> seen = new HashSet<>();
+    for (Ranked r : board.values()) {
+      if (top.size() == n) {
+        break;
+      }
+      if (!seen.add(r.id)) {
+        continue;
+      }
+      top.add(TopMenuItem.builder()
+          .id(r.id)
+          .name(r.name)
+          .diningCommonsCode(r.diningCommonsCode)
+          .station(r.station)
+          .reviewCount(r.reviewCount)
+          .averageStars((double) r.starSum / r.reviewCount)
+          .score(r.score)
+          .build());
+    }
+    return top;
+  }
+
+  public synchronized void reviewAdded(MenuItemReview review) {
+    adjust(review.getMenuItemId(), 1, review.getStars());
+  }
+
+  public synchronized void reviewRemoved(MenuItemReview review) {
+    adjust(review.getMenuItemId(), -1, -review.getStars());
+  }
+
+  public synchronized void reviewChanged(Long oldMenuItemId, int oldStars, MenuItemReview review) {
+    adjust(oldMenuItemId, -1, -oldStars);
+    adjust(review.getMenuItemId(), 1, review.getStars());
+  }
+
+  /** Picks up a menu item's new name, station or commons. */
+  public synchronized void menuItemChanged(UCSBDiningCommonsMenuItem item) {
+    Ranked current = leaderboard.byId.get(item.getId());
+    if (current != null) {
+      leaderboard.replace(current, ranked(item, current.reviewCount, current.starSum));
+    }
+  }
+
+  public synchronized void menuItemRemoved(long menuItemId) {
+    Ranked current = leaderboard.byId.get(menuItemId);
+    if (current != null) {
+      leaderboard.remove(current);
+    }
+  }
+
+  private void adjust(Long menuItemId, int reviews, int stars) {
+    if (menuItemId == null) {
+      return;
+    }
+    Ranked current = leaderboard.byId.get(menuItemId);
+    long reviewCount = reviews;
+    long starSum = stars;
+    UCSBDiningCommonsMenuItem item;
+    if (current != null) {
+      reviewCount += current.reviewCount;
+      starSum += current.starSum;
+      item = UCSBDiningCommonsMenuItem.builder()
+          .id(current.id)
+          .name(current.name)
+          .diningCommonsCode(current.diningCommonsCode)
+          .station(current.station)
+          .build();
+    } else {
+      item = ucsbDiningCommonsMenuItemRepository.findById(menuItemId).orElse(null);
+    }
+    if (item == null) {
+      return;
+    }
+    if (reviewCount <= 0) {
+      if (current != null) {
+        leaderboard.remove(current);
+      }
+    } else if (current != null) {
+      leaderboard.replace(current, ranked(item, reviewCount, starSum));
+    } else {
+      leaderboard.put(ranked(item, reviewCount, starSum));
+    }
+  }
+
+  private Ranked ranked(UCSBDiningCommonsMenuItem item, long reviewCount, long starSum) {
+    double score = (priorWeight * priorMean + starSum) / (priorWeight + reviewCount);
+    return new Ranked(item.getId(), item.getName(), item.getDiningCommonsCode(), item.getStation(),
+        reviewCount, starSum, score);
+  }
+}
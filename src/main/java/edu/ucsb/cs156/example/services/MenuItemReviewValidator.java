@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+/**
+ * Checks a new menu item review before it is saved or journaled, so the
+ * synchronous and write-behind paths accept the same reviews.
+ */
+public final class MenuItemReviewValidator {
+
+  private MenuItemReviewValidator() {
+  }
+
+  /**
+   * @throws BadRequestException naming the first field that is invalid
+   */
+  public static void validate(MenuItemReview review) {
+    if (review.getReviewerEmail() == null || review.getReviewerEmail().isBlank()) {
+      throw new BadRequestException("reviewerEmail must not be blank");
+    }
+    if (review.getStars() < 0 || review.getStars() > 5) {
+      throw new BadRequestException("stars must be between 0 and 5");
+    }
+    if (review.getDateReviewed() == null) {
+      throw new BadRequestException("dateReviewed must not be null");
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.config.SchedulingConfig;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.WriteBehindReceipt;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional write-behind buffer for new menu item reviews.
+ *
+ * When <code>app.reviews.writeBehind.enabled</code> is true, a posted review
+ * is validated, appended to a local journal (and forced to disk), and
+ * acknowledged; a task on the shared background scheduler
+ * ({@link SchedulingConfig}) then saves buffered reviews in batches
+ * when <code>batchSize</code> reviews are waiting or every
+ * <code>flushIntervalMillis</code>, whichever comes first.
+ *
+ * The journal is a series of newline-delimited JSON segment files. Each
+ * flush switches appends to a new segment and deletes the old one only after
+ * its reviews are saved, so a crash before a flush loses nothing: leftover
+ * segments are replayed at startup. A crash between saving and deleting a
+ * segment replays it again, so delivery is at-least-once. A leftover segment
+ * that can't be saved (for example, one reviewing a menu item that has since
+ * been deleted) is logged and renamed with a <code>.failed</code> suffix so
+ * startup can continue; it is not replayed again until it is renamed back.
+ *
+ * <code>app.reviews.writeBehind.journalDir</code> has no default and must
+ * be set when the buffer is enabled. It should name a directory that
+ * survives redeploys and <code>mvn clean</code>, since any reviews still in
+ * it are the only copy.
+ */
+@Service
+@Slf4j
+public class MenuItemReviewWriteBehindService {
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".jsonl";
+  private static final String FAILED_SUFFIX = ".failed";
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  MenuItemLeaderboardService menuItemLeaderboardService;
+
+  @Autowired
+  ChangeFeedService changeFeedService;
+
+  @Autowired
+  TransactionOperations transactionOperations;
+
+  @Autowired
+  @Qualifier(SchedulingConfig.BACKGROUND_TASK_SCHEDULER)
+  TaskScheduler taskScheduler;
+
+  @Value("${app.reviews.writeBehind.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.reviews.writeBehind.batchSize:100}")
+  private int batchSize;
+
+  @Value("${app.reviews.writeBehind.flushIntervalMillis:1000}")
+  private long flushIntervalMillis;
+
+  @Value("${app.reviews.writeBehind.maxPending:10000}")
+  private int maxPending;
+
+  @Value("${app.reviews.writeBehind.journalDir:}")
+  private String journalDir;
+
+  private final Object appendLock = new Object();
+  private final Object flushLock = new Object();
+
+  private ScheduledFuture<?> flushTask;
+  private Path directory;
+  private long segmentNumber;
+  private FileChannel segment;
+  private List<MenuItemReview> pending = new ArrayList<>();
+  private final TreeMap<Long, List<MenuItemReview>> unsaved = new TreeMap<>();
+  private volatile int unsavedCount;
+  private long sequence;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @PostConstruct
+  void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    if (journalDir.isBlank()) {
+      throw new IllegalStateException(
+          "app.reviews.writeBehind.journalDir must be set when app.reviews.writeBehind.enabled is true");
+    }
+    directory = Paths.get(journalDir);
+    Files.createDirectories(directory);
+    TreeMap<Long, Path> leftovers = segments();
+    segmentNumber = leftovers.isEmpty() ? 0 : leftovers.lastKey() + 1;
+    replay(leftovers);
+    segment = openSegment(segmentNumber);
+
+    flushTask = taskScheduler.scheduleWithFixedDelay(this::flushQuietly,
+        Instant.now().plusMillis(flushIntervalMillis), Duration.ofMillis(flushIntervalMillis));
+    log.info("MenuItemReview write-behind enabled; journal in {}", directory.toAbsolutePath());
+  }
+
+  @PreDestroy
+  void stop() throws IOException {
+    if (flushTask == null) {
+      return;
+    }
+    flushTask.cancel(false);
+    flushTask = null;
+    try {
+      flush();
+    } finally {
+      segment.close();
+    }
+  }
+
+  /**
+   * Journals a review and queues it for saving.
+   *
+   * @throws BadRequestException if the review is invalid
+   * @throws TaskRejectedException if <code>maxPending</code> reviews are already waiting
+   */
+  public WriteBehindReceipt submit(MenuItemReview review) throws IOException {
+    MenuItemReviewValidator.validate(review);
+    byte[] line = (objectMapper.writeValueAsString(review) + "\n").getBytes(StandardCharsets.UTF_8);
+    long receiptSequence;
+    int waiting;
+    synchronized (appendLock) {
+      if (pending.size() + unsavedCount >= maxPending) {
+        throw new TaskRejectedException("MenuItemReview write-behind buffer is full");
+      }
+      segment.write(ByteBuffer.wrap(line));
+      segment.force(false);
+      pending.add(review);
+      receiptSequence = ++sequence;
+      waiting = pending.size();
+    }
+    if (waiting == batchSize) {
+      taskScheduler.schedule(this::flushQuietly, Instant.now());
+    }
+    return WriteBehindReceipt.builder()
+        .sequence(receiptSequence)
+        .pending(waiting)
+        .review(review)
+        .build();
+  }
+
+  void flush() throws IOException {
+    synchronized (flushLock) {
+      synchronized (appendLock) {
+        if (!pending.isEmpty()) {
+          FileChannel full = segment;
+          unsaved.put(segmentNumber, pending);
+          unsavedCount += pending.size();
+          pending = new ArrayList<>();
+          segment = openSegment(++segmentNumber);
+          full.close();
+        }
+      }
+      // Segments are saved oldest first; a failure leaves the rest for the next flush
+      while (!unsaved.isEmpty()) {
+        Map.Entry<Long, List<MenuItemReview>> oldest = unsaved.firstEntry();
+        save(oldest.getValue());
+        oldest.getValue().forEach(menuItemLeaderboardService::reviewAdded);
+        Files.delete(segmentPath(oldest.getKey()));
+        unsaved.remove(oldest.getKey());
+        unsavedCount -= oldest.getValue().size();
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (Exception e) {
+      // the batch stays in memory and on disk and is retried by the next flush
+      log.error("Flushing buffered menu item reviews failed", e);
+    }
+  }
+
+  private void save(List<MenuItemReview> batch) {
+    transactionOperations.executeWithoutResult(status -> {
+      for (int start = 0; start < batch.size(); start += batchSize) {
+        menuItemReviewRepository.saveAll(batch.subList(start, Math.min(batch.size(), start + batchSize)));
+      }
+      changeFeedService.recordAll("menuitemreviews", batch.stream().map(MenuItemReview::getItemid).toList(),
+          ChangeType.INSERT);
+    });
+    log.info("Saved {} buffered menu item reviews", batch.size());
+  }
+
+  private void replay(TreeMap<Long, Path> leftovers) throws IOException {
+    for (Path path : leftovers.values()) {
+      List<MenuItemReview> batch = new ArrayList<>();
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.isBlank()) {
+            batch.add(objectMapper.readValue(line, MenuItemReview.class));
+          }
+        }
+      } catch (IOException e) {
+        // a torn last line from a crash mid-append; keep what was read
+        log.warn("Stopped reading journal segment {} early: {}", path, e.getMessage());
+      }
+      try {
+        save(batch);
+      } catch (RuntimeException e) {
+        // e.g. a review of a menu item deleted since it was journaled; don't block startup on it
+        Path failed = path.resolveSibling(path.getFileName() + FAILED_SUFFIX);
+        log.error("Replaying journal segment {} failed; moved it to {}", path, failed, e);
+        Files.move(path, failed);
+        continue;
+      }
+      Files.delete(path);
+    }
+  }
+
+  private TreeMap<Long, Path> segments() throws IOException {
+    TreeMap<Long, Path> found = new TreeMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        found.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+            path);
+      }
+    }
+    return found;
+  }
+
+  private Path segmentPath(long number) {
+    return directory.resolve(SEGMENT_PREFIX + "%012d".formatted(number) + SEGMENT_SUFFIX);
+  }
+
+  private FileChannel openSegment(long number) throws IOException {
+    return FileChannel.open(segmentPath(number),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemDelta;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes menu item changes to WebSocket clients subscribed to
+ * <code>/topic/ucsbdiningcommonsmenuitem/{diningCommonsCode}</code> (see
+ * {@link edu.ucsb.cs156.example.config.WebSocketConfig}).
+ *
+ * Publishing only hands the message to the broker; delivery happens on the
+ * outbound pool. Pushes are best effort: a failure is logged and never
+ * fails the write that caused it, so clients that may have missed a push
+ * should resync from <code>/api/changes</code> when they reconnect.
+ */
+@Service
+@Slf4j
+public class MenuItemUpdatePublisher {
+
+  public static final String TOPIC_PREFIX = "/topic/ucsbdiningcommonsmenuitem/";
+
+  @Autowired
+  SimpMessageSendingOperations messagingTemplate;
+
+  public void created(UCSBDiningCommonsMenuItem item) {
+    publish(item.getDiningCommonsCode(), delta("create", item));
+  }
+
+  /**
+   * An item that moved to another commons is a delete for subscribers of
+   * the old one and a create for those of the new one.
+   */
+  public void updated(String oldDiningCommonsCode, UCSBDiningCommonsMenuItem item) {
+    if (Objects.equals(oldDiningCommonsCode, item.getDiningCommonsCode())) {
+      publish(item.getDiningCommonsCode(), delta("update", item));
+      return;
+    }
+    publish(oldDiningCommonsCode, MenuItemDelta.builder().op("delete").id(item.getId()).build());
+    publish(item.getDiningCommonsCode(), delta("create", item));
+  }
+
+  public void deleted(UCSBDiningCommonsMenuItem item) {
+    publish(item.getDiningCommonsCode(), MenuItemDelta.builder().op("delete").id(item.getId()).build());
+  }
+
+  private static MenuItemDelta delta(String op, UCSBDiningCommonsMenuItem item) {
+    return MenuItemDelta.builder()
+        .op(op)
+        .id(item.getId())
+        .name(item.getName())
+        .station(item.getStation())
+        .build();
+  }
+
+  private void publish(String diningCommonsCode, MenuItemDelta delta) {
+    if (diningCommonsCode == null) {
+      return;
+    }
+    try {
+      messagingTemplate.convertAndSend(TOPIC_PREFIX + diningCommonsCode, delta);
+    } catch (MessagingException e) {
+      log.warn("Could not push {} of menu item {} to {}: {}", delta.getOp(), delta.getId(), diningCommonsCode,
+          e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Recommendation;
+import edu.ucsb.cs156.example.repositories.RecommendationRepository;
+
+/**
+ * Writes recommendations, optionally for one professor and a range of
+ * <code>dateRequested</code>, as CSV or newline-delimited JSON.
+ *
+ * Rows are read through a database cursor
+ * (<code>RecommendationRepository.EXPORT_FETCH_SIZE</code> rows per round
+ * trip), written as they arrive and detached from the persistence context
+ * once written, so memory use does not grow with the size of the export.
+ * The output is flushed after each fetch, so a slow client sees rows as the
+ * cursor advances rather than at the end.
+ */
+@Service
+public class RecommendationExportService {
+
+  public enum Format {
+    CSV, JSONL
+  }
+
+  static final String CSV_HEADER = "id,requesterEmail,professorEmail,dateRequested,dateNeeded,explanation,done";
+
+  // Bounds used when the caller leaves one end of the date range open
+  static final LocalDateTime EARLIEST = LocalDateTime.of(1, 1, 1, 0, 0);
+  static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+  private static final int FLUSH_EVERY = Integer.parseInt(RecommendationRepository.EXPORT_FETCH_SIZE);
+
+  @Autowired
+  RecommendationRepository recommendationRepository;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * @param professorEmail only this professor's recommendations, or all if null
+   * @param from earliest <code>dateRequested</code>, inclusive, or null
+   * @param to latest <code>dateRequested</code>, exclusive, or null
+   */
+  @Transactional(readOnly = true)
+  public void export(String professorEmail, LocalDateTime from, LocalDateTime to, Format format,
+      OutputStream outputStream) throws IOException {
+    LocalDateTime start = from != null ? from : EARLIEST;
+    LocalDateTime end = to != null ? to : LATEST;
+    try (Stream<Recommendation> rows = professorEmail == null
+        ? recommendationRepository
+            .streamByDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(start, end)
+        : recommendationRepository
+            .streamByProfessorEmailAndDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(
+                professorEmail, start, end)) {
+      if (format == Format.CSV) {
+        writeCsv(rows.iterator(), outputStream);
+      } else {
+        writeJsonLines(rows.iterator(), outputStream);
+      }
+    }
+  }
+
+  private void writeCsv(Iterator<Recommendation> rows, OutputStream outputStream) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    writer.write(CSV_HEADER);
+    writer.write("\r\n");
+    int written = 0;
+    while (rows.hasNext()) {
+      Recommendation r = rows.next();
+      writer.write(Long.toString(r.getId()));
+      writer.write(',');
+      writer.write(csvField(r.getRequesterEmail()));
+      writer.write(',');
+      writer.write(csvField(r.getProfessorEmail()));
+      writer.write(',');
+      writer.write(csvField(r.getDateRequested()));
+      writer.write(',');
+      writer.write(csvField(r.getDateNeeded()));
+      writer.write(',');
+      writer.write(csvField(r.getExplanation()));
+      writer.write(',');
+      writer.write(Boolean.toString(r.getDone()));
+      writer.write("\r\n");
+      entityManager.detach(r);
+      if (++written % FLUSH_EVERY == 0) {
+        writer.flush();
+      }
+    }
+    writer.flush();
+  }
+
+  private void writeJsonLines(Iterator<Recommendation> rows, OutputStream outputStream) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      int written = 0;
+      while (rows.hasNext()) {
+        Recommendation r = rows.next();
+        generator.writeObject(r);
+        generator.writeRaw('\n');
+        entityManager.detach(r);
+        if (++written % FLUSH_EVERY == 0) {
+          generator.flush();
+        }
+      }
+    }
+  }
+
+  /**
+   * Quotes a field when it contains a delimiter, quote or line break, and
+   * prefixes values that a spreadsheet would run as a formula with a quote.
+   */
+  static String csvField(Object value) {
+    if (value == null) {
+      return "";
+    }
+    String text = value.toString();
+    if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+      text = "'" + text;
+    }
+    if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+      return text;
+    }
+    return "\"" + text.replace("\"", "\"\"") + "\"";
+  }
+}
@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.crud.KeysetReader;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+/**
+ * Reads only the requested columns of an entity, for the <code>fields=</code>
+ * parameter of the list endpoints.
+ *
+ * The requested field names are checked against the JPA metamodel and then
+ * turned into a Criteria tuple query, so columns that were not asked for are
+ * never read from the database. Rows come back as ordered maps, which Jackson
+ * serializes directly.
+ */
+@Service("sparseFieldset")
+public class SparseFieldsetService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private static final String KEY_ALIAS = "_key";
+
+  private final Map<Class<?>, Set<String>> basicAttributes = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, String> idAttributes = new ConcurrentHashMap<>();
+
+  public List<Map<String, Object>> findAll(Class<?> entityType, String fields) {
+    List<String> names = parseFields(entityType, fields);
+    CriteriaQuery<Tuple> query = buildQuery(entityType, names, Sort.unsorted());
+    return toMaps(entityManager.createQuery(query).getResultList());
+  }
+
+  /**
+   * Pages through the requested columns in id order, starting each page after
+   * the last id of the previous one rather than at an offset. The id is read
+   * under a separate alias when it was not asked for, and left out of the rows.
+   */
+  public KeysetReader<Map<String, Object>> keysetReader(Class<?> entityType, String fields) {
+    List<String> names = parseFields(entityType, fields);
+    String id = idAttributes.computeIfAbsent(entityType, this::loadIdAttribute);
+    String keyAlias = names.contains(id) ? id : KEY_ALIAS;
+    Object[] lastKey = new Object[1];
+    return (last, pageSize) -> {
+      CriteriaQuery<Tuple> query = buildKeysetQuery(entityType, names, id, last == null ? null : lastKey[0]);
+      List<Tuple> tuples = entityManager.createQuery(query).setMaxResults(pageSize).getResultList();
+      if (!tuples.isEmpty()) {
+        lastKey[0] = tuples.get(tuples.size() - 1).get(keyAlias);
+      }
+      List<Map<String, Object>> rows = toMaps(tuples);
+      if (keyAlias == KEY_ALIAS) {
+        rows.forEach(row -> row.remove(KEY_ALIAS));
+      }
+      return rows;
+    };
+  }
+
+  public List<String> parseFields(Class<?> entityType, String fields) {
+    Set<String> allowed = basicAttributes.computeIfAbsent(entityType, this::loadBasicAttributes);
+    List<String> names = new ArrayList<>();
+    for (String field : fields.split(",")) {
+      String name = field.trim();
+      if (name.isEmpty() || names.contains(name)) {
+        continue;
+      }
+      if (!allowed.contains(name)) {
+        throw new BadRequestException("Unknown field %s for %s; valid fields are %s"
+            .formatted(name, entityType.getSimpleName(), allowed));
+      }
+      names.add(name);
+    }
+    if (names.isEmpty()) {
+      throw new BadRequestException("fields must name at least one field of %s".formatted(entityType.getSimpleName()));
+    }
+    return names;
+  }
+
+  private Set<String> loadBasicAttributes(Class<?> entityType) {
+    return entityManager.getMetamodel().entity(entityType).getSingularAttributes().stream()
+        .filter(attribute -> attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC)
+        .map(Attribute::getName)
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  private String loadIdAttribute(Class<?> entityType) {
+    return entityManager.getMetamodel().entity(entityType).getSingularAttributes().stream()
+        .filter(SingularAttribute::isId)
+        .map(Attribute::getName)
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException(entityType.getSimpleName() + " has no single id attribute"));
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private CriteriaQuery<Tuple> buildKeysetQuery(Class<?> entityType, List<String> names, String id, Object after) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<?> root = query.from(entityType);
+    List<Selection<?>> selections = new ArrayList<>();
+    for (String name : names) {
+      selections.add(root.get(name).alias(name));
+    }
+    if (!names.contains(id)) {
+      selections.add(root.get(id).alias(KEY_ALIAS));
+    }
+    query.multiselect(selections);
+    if (after != null) {
+      query.where(cb.greaterThan(root.<Comparable>get(id), (Comparable) after));
+    }
+    query.orderBy(cb.asc(root.get(id)));
+    return query;
+  }
+
+  private CriteriaQuery<Tuple> buildQuery(Class<?> entityType, List<String> names, Sort sort) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<?> root = query.from(entityType);
+    List<Selection<?>> selections = new ArrayList<>();
+    for (String name : names) {
+      selections.add(root.get(name).alias(name));
+    }
+    query.multiselect(selections);
+    List<Order> orders = new ArrayList<>();
+    for (Sort.Order order : sort) {
+      orders.add(order.isAscending() ? cb.asc(root.get(order.getProperty())) : cb.desc(root.get(order.getProperty())));
+    }
+    query.orderBy(orders);
+    return query;
+  }
+
+  private List<Map<String, Object>> toMaps(List<Tuple> tuples) {
+    List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+    for (Tuple tuple : tuples) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (TupleElement<?> element : tuple.getElements()) {
+        row.put(element.getAlias(), tuple.get(element));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class DerivedQueryIndexCheckTests {
+
+  Function<String, String> columnOf = property -> property.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+
+  @Test
+  void test_query_on_an_indexed_column_is_supported() {
+    assertEquals(List.of(),
+        DerivedQueryIndexCheck.unindexedBranches("findByEmail", User.class, columnOf, Set.of("id", "email")));
+  }
+
+  @Test
+  void test_query_on_an_unindexed_column_is_reported() {
+    assertEquals(List.of("google_sub"),
+        DerivedQueryIndexCheck.unindexedBranches("findByGoogleSub", User.class, columnOf, Set.of("id", "email")));
+  }
+
+  @Test
+  void test_each_or_branch_needs_its_own_index() {
+    assertEquals(List.of("full_name"),
+        DerivedQueryIndexCheck.unindexedBranches("findByEmailStartingWithOrFullNameStartingWith", User.class,
+            columnOf, Set.of("id", "email")));
+  }
+
+  @Test
+  void test_one_indexed_column_is_enough_for_an_and_branch() {
+    assertEquals(List.of(),
+        DerivedQueryIndexCheck.unindexedBranches("findByEmailAndGoogleSub", User.class, columnOf, Set.of("email")));
+  }
+
+  @Test
+  void test_methods_that_are_not_derived_queries_are_ignored() {
+    assertEquals(List.of(),
+        DerivedQueryIndexCheck.unindexedBranches("findAllProjectedBy", User.class, columnOf, Set.of()));
+  }
+}
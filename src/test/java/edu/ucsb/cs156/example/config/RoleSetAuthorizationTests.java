@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import edu.ucsb.cs156.example.config.RoleSet.Role;
+import edu.ucsb.cs156.example.config.RoleSetAuthorization.RequiredRole;
+
+class RoleSetAuthorizationTests {
+
+  static class Handlers {
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public void admin() {
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    public void user() {
+    }
+
+    @PreAuthorize("hasRole('ROLE_USER') and #id > 0")
+    public void spel(long id) {
+    }
+
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostAuthorize("returnObject != null")
+    public Object post() {
+      return null;
+    }
+  }
+
+  RoleSetAuthorization.MetadataSource source = new RoleSetAuthorization.MetadataSource();
+  RoleSetAuthorization.Voter voter = new RoleSetAuthorization.Voter();
+
+  @AfterEach
+  void cleanup() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private List<ConfigAttribute> attributes(String name, Class<?>... parameterTypes) throws Exception {
+    Method method = Handlers.class.getMethod(name, parameterTypes);
+    return List.copyOf(source.getAttributes(method, Handlers.class));
+  }
+
+  @Test
+  void test_roleSet_of_authorities_ignores_unknown_and_scope_authorities() {
+    RoleSet roles = RoleSet.of(AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_email", "ROLE_OTHER", "ADMIN"));
+    assertTrue(roles.contains(Role.USER));
+    assertFalse(roles.contains(Role.ADMIN));
+    assertFalse(roles.contains(Role.MEMBER));
+    assertEquals("RoleSet[USER]", roles.toString());
+  }
+
+  @Test
+  void test_metadata_source_replaces_plain_hasRole_only() throws Exception {
+    List<ConfigAttribute> admin = attributes("admin");
+    assertEquals(1, admin.size());
+    assertEquals(Role.ADMIN, ((RequiredRole) admin.get(0)).getRole());
+    assertNull(admin.get(0).getAttribute());
+
+    assertEquals(Role.USER, ((RequiredRole) attributes("user").get(0)).getRole());
+    assertEquals(List.of(), attributes("spel", long.class));
+    assertEquals(List.of(), attributes("post"));
+  }
+
+  @Test
+  void test_voter_uses_authorities_without_session() throws Exception {
+    Authentication user = new TestingAuthenticationToken("u", "p", "ROLE_USER");
+    assertEquals(AccessDecisionVoter.ACCESS_GRANTED, voter.vote(user, null, attributes("user")));
+    assertEquals(AccessDecisionVoter.ACCESS_DENIED, voter.vote(user, null, attributes("admin")));
+    assertEquals(AccessDecisionVoter.ACCESS_ABSTAIN, voter.vote(user, null, List.of()));
+  }
+
+  @Test
+  void test_voter_prefers_roleSet_stored_in_session_at_login() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    RoleSet.of(AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")).storeInSession();
+
+    Authentication user = new TestingAuthenticationToken("u", "p", "ROLE_USER");
+    user.setAuthenticated(true);
+    assertEquals(AccessDecisionVoter.ACCESS_GRANTED, voter.vote(user, null, attributes("admin")));
+
+    Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+        AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+    assertEquals(AccessDecisionVoter.ACCESS_DENIED, voter.vote(anonymous, null, attributes("admin")));
+  }
+}
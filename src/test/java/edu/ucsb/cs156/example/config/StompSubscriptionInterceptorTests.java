@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class StompSubscriptionInterceptorTests {
+
+  StompSubscriptionInterceptor interceptor = new StompSubscriptionInterceptor();
+
+  Principal user = new UsernamePasswordAuthenticationToken("cgaucho@ucsb.edu", null,
+      List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+  private static Message<byte[]> frame(StompCommand command, String destination, Principal principal) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+    accessor.setDestination(destination);
+    accessor.setUser(principal);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  @Test
+  void test_user_may_subscribe_to_a_topic() {
+    Message<byte[]> subscribe = frame(StompCommand.SUBSCRIBE, "/topic/ucsbdiningcommonsmenuitem/ortega", user);
+    assertSame(subscribe, interceptor.preSend(subscribe, null));
+  }
+
+  @Test
+  void test_anonymous_subscribe_is_rejected() {
+    MessagingException e = assertThrows(MessagingException.class, () -> interceptor.preSend(
+        frame(StompCommand.SUBSCRIBE, "/topic/ucsbdiningcommonsmenuitem/ortega", null), null));
+    assertEquals("Log in to subscribe to /topic/ucsbdiningcommonsmenuitem/ortega", e.getMessage());
+  }
+
+  @Test
+  void test_subscribe_outside_topic_is_rejected() {
+    MessagingException e = assertThrows(MessagingException.class,
+        () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/app/anything", user), null));
+    assertEquals("Cannot subscribe to /app/anything", e.getMessage());
+  }
+
+  @Test
+  void test_send_is_rejected() {
+    assertThrows(MessagingException.class,
+        () -> interceptor.preSend(frame(StompCommand.SEND, "/topic/ucsbdiningcommonsmenuitem/ortega", user), null));
+  }
+}
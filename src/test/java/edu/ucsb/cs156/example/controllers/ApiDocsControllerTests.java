@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ApiDocsController.class, properties = "springfox.documentation.enabled=false")
+public class ApiDocsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Test
+  public void api_docs_serves_the_static_spec() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/docs"))
+        .andExpect(status().isOk()).andReturn();
+
+    assertTrue(response.getResponse().getContentAsString().contains("\"swagger\":\"2.0\""));
+  }
+
+  @Test
+  public void swagger_resources_point_the_ui_at_the_static_spec() throws Exception {
+    MvcResult response = mockMvc.perform(get("/swagger-resources"))
+        .andExpect(status().isOk()).andReturn();
+
+    String expectedJson = mapper.writeValueAsString(List.of(Map.of(
+        "name", "default", "url", "/api/docs", "location", "/api/docs", "swaggerVersion", "2.0")));
+    assertEquals(mapper.readTree(expectedJson), mapper.readTree(response.getResponse().getContentAsString()));
+  }
+}
@@ -1,17 +1,27 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.ArticleSummary;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -27,6 +37,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -42,6 +53,12 @@ public class ArticleControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
+        @MockBean
+        ChangeFeedService changeFeedService;
+
         // Authorization tests for /api/article/admin/all
 
         @Test
@@ -53,7 +70,9 @@ public class ArticleControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
-                mockMvc.perform(get("/api/article/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().is(200)); // logged
         }
 
@@ -110,6 +129,63 @@ public class ArticleControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_articles_in_request_order() throws Exception {
+
+                // arrange
+                Article article1 = Article.builder()
+                                .id(1L)
+                                .title("Using testing-playground with React Testing Library")
+                                .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                .explanation("Helpful when we get to front end development")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+                                .build();
+
+                Article article2 = Article.builder()
+                                .id(2L)
+                                .title("Handy Spring Utility Classes")
+                                .url("https://twitter.com/maciejwalkowiak/status/1511736828369719300?t=gGXpmBH4y4eY9OBSUInZWg&s=09")
+                                .explanation("A lot of really useful classes are built into Spring")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-04-19T00:00:00"))
+                                .build();
+
+                when(articleRepository.findAllById(any())).thenReturn(List.of(article1, article2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/article/batch?ids=2,9,1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).findAllById(any());
+                Map<String, Object> expected = new LinkedHashMap<>();
+                expected.put("results", Arrays.asList(article2, null, article1));
+                expected.put("missing", List.of(9L));
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_of_articles_rejects_more_ids_than_the_cap() throws Exception {
+
+                // arrange
+                String ids = String.join(",", Collections.nCopies(101, "1"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/article/batch?ids=" + ids))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(articleRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("at most 100 ids may be requested at once; got 101", json.get("message"));
+        }
+
         @WithMockUser(roles = { "USER" })
         @Test
         public void test_that_logged_in_user_can_get_by_id_when_the_id_does_not_exist() throws Exception {
@@ -161,7 +237,9 @@ public class ArticleControllerTests extends ControllerTestCase {
                 when(articleRepository.findAll()).thenReturn(expectedArticles);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/article/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -197,6 +275,7 @@ public class ArticleControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articleRepository, times(1)).save(article1);
+                verify(changeFeedService, times(1)).record("article", 0L, ChangeType.INSERT);
                 String expectedJson = mapper.writeValueAsString(article1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -253,6 +332,53 @@ public class ArticleControllerTests extends ControllerTestCase {
                 assertEquals("Article with id 15 not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_restore_a_deleted_article() throws Exception {
+                // arrange
+
+                when(articleRepository.restoreById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/article/restore?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).restoreById(15L);
+                verify(changeFeedService, times(1)).record("article", 15L, ChangeType.INSERT);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Article with id 15 restored", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_tries_to_restore_a_live_or_purged_article_and_gets_404() throws Exception {
+                // arrange
+
+                when(articleRepository.restoreById(eq(15L))).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/article/restore?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(changeFeedService, times(0)).record(any(), any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Article with id 15 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_restore_articles() throws Exception {
+                mockMvc.perform(put("/api/article/restore?id=15").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(articleRepository, times(0)).restoreById(anyLong());
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_edit_an_existing_article() throws Exception {
@@ -280,6 +406,7 @@ public class ArticleControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
                 when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articleRepository.save(eq(articleEdited))).thenReturn(articleEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -297,6 +424,97 @@ public class ArticleControllerTests extends ControllerTestCase {
                 assertEquals(requestBody, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_matching_if_match_returns_the_new_etag() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-04-20T00:00:00");
+
+                Article articleOrig = Article.builder()
+                                .id(67L)
+                                .version(3L)
+                                .title("Using testing-playground with React Testing Library")
+                                .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                .explanation("Helpful when we get to front end development")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                Article articleEdited = Article.builder()
+                                .id(67L)
+                                .version(3L)
+                                .title("Using testing-playground with React Testing Library CHANGED")
+                                .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                .explanation("Helpful when we get to front end development")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                Article articleSaved = Article.builder()
+                                .id(67L)
+                                .version(4L)
+                                .title("Using testing-playground with React Testing Library CHANGED")
+                                .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                .explanation("Helpful when we get to front end development")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articleRepository.save(eq(articleEdited))).thenReturn(articleSaved);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/article?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(articleEdited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\"")).andReturn();
+
+                // assert
+                verify(articleRepository, times(1)).save(articleEdited);
+                assertEquals(mapper.writeValueAsString(articleSaved), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_is_rejected_with_412() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-04-20T00:00:00");
+
+                Article articleOrig = Article.builder()
+                                .id(67L)
+                                .version(5L)
+                                .title("Using testing-playground with React Testing Library")
+                                .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                .explanation("Helpful when we get to front end development")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/article?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(articleOrig))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articleRepository, times(0)).save(any(Article.class));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Article with id 67 has been modified; its current ETag is \"5\"", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_cannot_edit_article_that_does_not_exist() throws Exception {
@@ -331,4 +549,100 @@ public class ArticleControllerTests extends ControllerTestCase {
                 assertEquals("Article with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_articles() throws Exception {
+
+                // arrange
+
+                Article first = Article.builder().id(1L).title("First").build();
+                Article second = Article.builder().id(2L).title("Second").build();
+                when(articleRepository.findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articleRepository, times(1)).findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_articles_as_summaries() throws Exception {
+
+                // arrange
+
+                Article entity = Article.builder().id(1L).title("First").explanation("A very long explanation").build();
+                ArticleSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ArticleSummary.class, entity);
+                when(articleRepository.findAllProjectedBy()).thenReturn(Arrays.asList(summary));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/all?view=summary"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articleRepository, times(1)).findAllProjectedBy();
+                verify(articleRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(summary));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_requested_fields_of_all_articles() throws Exception {
+
+                // arrange
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", 1);
+                row.put("title", "First");
+                List<Map<String, Object>> rows = Arrays.asList(row);
+                when(sparseFieldsetService.findAll(eq(Article.class), eq("id,title"))).thenReturn(rows);
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/all?fields=id,title"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(sparseFieldsetService, times(1)).findAll(eq(Article.class), eq("id,title"));
+                verify(articleRepository, times(0)).findAll();
+                assertEquals("[{\"id\":1,\"title\":\"First\"}]", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void requesting_an_unknown_field_of_all_articles_is_a_bad_request() throws Exception {
+
+                // arrange
+
+                when(sparseFieldsetService.findAll(eq(Article.class), eq("id,bogus")))
+                                .thenThrow(new BadRequestException("Unknown field bogus for Article"));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/article/all?fields=id,bogus"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("Unknown field bogus for Article", json.get("message"));
+        }
 }
@@ -0,0 +1,158 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.MeteredThreadPoolTaskExecutor;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.SystemInfo;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.SystemInfoService;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = BootstrapController.class)
+public class BootstrapControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  SystemInfoService systemInfoService;
+
+  @MockBean
+  MeteredThreadPoolTaskExecutor controllerTaskExecutor;
+
+  UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+      .name("Carrillo")
+      .code("carrillo")
+      .hasSackMeal(false)
+      .hasTakeOutMeal(false)
+      .hasDiningCam(true)
+      .latitude(34.409953)
+      .longitude(-119.85277)
+      .build();
+
+  UCSBOrganization zpr = UCSBOrganization.builder()
+      .orgCode("ZPR")
+      .orgTranslationShort("ZETA PHI RHO")
+      .orgTranslation("ZETA PHI RHO")
+      .inactive(false)
+      .build();
+
+  @BeforeEach
+  public void setup() {
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArgument(0)).run();
+      return null;
+    }).when(controllerTaskExecutor).execute(any(Runnable.class));
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(zpr));
+    when(systemInfoService.getSystemInfo()).thenReturn(SystemInfo.builder()
+        .showSwaggerUILink(true)
+        .springH2ConsoleEnabled(false)
+        .build());
+  }
+
+  @Test
+  public void bootstrap__logged_out() throws Exception {
+    mockMvc.perform(get("/api/bootstrap"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void bootstrap__user_gets_reference_data_without_systemInfo() throws Exception {
+
+    // arrange
+    CurrentUser expectedCurrentUser = CurrentUser.builder()
+        .user(User.builder()
+            .id(1L)
+            .googleSub("fake_user")
+            .email("user@example.org")
+            .pictureUrl("https://example.org/user.jpg")
+            .fullName("Fake user")
+            .givenName("Fake")
+            .familyName("user")
+            .emailVerified(true)
+            .locale("")
+            .hostedDomain("example.org")
+            .admin(false)
+            .build())
+        .roles(List.of(new SimpleGrantedAuthority("ROLE_USER")))
+        .build();
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/bootstrap"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andExpect(header().string("Cache-Control", "max-age=0, must-revalidate, private"))
+        .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(mapper.writeValueAsString(expectedCurrentUser), mapper.writeValueAsString(json.get("currentUser")));
+    assertNull(json.get("systemInfo"));
+    assertEquals(mapper.writeValueAsString(List.of(carrillo)), mapper.writeValueAsString(json.get("diningCommons")));
+    assertEquals(mapper.writeValueAsString(List.of(zpr)), mapper.writeValueAsString(json.get("organizations")));
+    verify(systemInfoService, never()).getSystemInfo();
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void bootstrap__admin_gets_systemInfo() throws Exception {
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/bootstrap"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(Map.of("springH2ConsoleEnabled", false, "showSwaggerUILink", true), json.get("systemInfo"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void bootstrap__matching_if_none_match_returns_304() throws Exception {
+
+    // arrange
+    String etag = mockMvc.perform(get("/api/bootstrap"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/bootstrap").header("If-None-Match", etag))
+        .andExpect(status().isNotModified()).andReturn();
+
+    // assert
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+}
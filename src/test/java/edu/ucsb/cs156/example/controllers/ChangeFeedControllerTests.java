@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.models.ChangesPage;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ChangeFeedController.class)
+public class ChangeFeedControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  ChangeFeedService changeFeedService;
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/changes?since=0"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_get_changes_since_a_seq() throws Exception {
+
+    // arrange
+
+    ChangesPage page = ChangesPage.builder()
+        .changes(List.of(
+            ChangeLogEntry.builder()
+                .seq(43)
+                .entityType("article")
+                .entityId("7")
+                .changeType(ChangeType.UPDATE)
+                .changedAt(LocalDateTime.parse("2022-10-20T12:00:00"))
+                .build(),
+            ChangeLogEntry.builder()
+                .seq(44)
+                .entityType("ucsbdiningcommons")
+                .entityId("ortega")
+                .changeType(ChangeType.DELETE)
+                .changedAt(LocalDateTime.parse("2022-10-20T12:00:01"))
+                .build()))
+        .nextSince(44)
+        .hasMore(true)
+        .build();
+    when(changeFeedService.changesSince(42, 2)).thenReturn(page);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/changes?since=42&limit=2"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(page), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void changes_limit_over_the_cap_is_a_bad_request() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/changes?since=0&limit=1001"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("limit must be between 1 and 1000", json.get("message"));
+  }
+}
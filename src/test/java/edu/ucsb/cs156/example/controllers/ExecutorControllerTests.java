@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.MeteredThreadPoolTaskExecutor;
+import edu.ucsb.cs156.example.models.ExecutorStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ExecutorController.class)
+public class ExecutorControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  MeteredThreadPoolTaskExecutor controllerTaskExecutor;
+
+  @Test
+  public void executorStats__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/executor"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void executorStats__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/executor"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void executorStats__admin_logged_in() throws Exception {
+
+    // arrange
+
+    ExecutorStats stats = ExecutorStats
+        .builder()
+        .poolSize(4)
+        .activeCount(2)
+        .maxPoolSize(16)
+        .queueDepth(7)
+        .queueRemainingCapacity(93)
+        .completedTaskCount(42L)
+        .rejectedCount(3L)
+        .build();
+    when(controllerTaskExecutor.getStats()).thenReturn(stats);
+    String expectedJson = mapper.writeValueAsString(stats);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/executor"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+}
@@ -2,10 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -13,8 +17,13 @@ import org.springframework.test.web.servlet.MvcResult;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestStats;
+import edu.ucsb.cs156.example.models.HelpRequestSummary;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.HelpRequestStatsService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -26,6 +35,8 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -42,6 +53,15 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    SparseFieldsetService sparseFieldsetService;
+
+    @MockBean
+    ChangeFeedService changeFeedService;
+
+    @MockBean
+    HelpRequestStatsService helpRequestStatsService;
+
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
             mockMvc.perform(get("/api/helprequest/all"))
@@ -51,7 +71,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
-            mockMvc.perform(get("/api/helprequest/all"))
+            MvcResult asyncResult = mockMvc.perform(get("/api/helprequest/all"))
+                            .andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(asyncResult))
                             .andExpect(status().is(200)); // logged
     }
 
@@ -156,7 +178,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             when(helpRequestRepository.findAll()).thenReturn(expectedHelpRequests);
 
             // act
-            MvcResult response = mockMvc.perform(get("/api/helprequest/all"))
+            MvcResult asyncResult = mockMvc.perform(get("/api/helprequest/all"))
+                            .andExpect(request().asyncStarted()).andReturn();
+            MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                             .andExpect(status().isOk()).andReturn();
 
             // assert
@@ -193,6 +217,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
             // assert
             verify(helpRequestRepository, times(1)).save(helpRequest1);
+            verify(helpRequestStatsService, times(1)).created(helpRequest1);
             String expectedJson = mapper.writeValueAsString(helpRequest1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -225,6 +250,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             // assert
             verify(helpRequestRepository, times(1)).findById(1L);
             verify(helpRequestRepository, times(1)).delete(any());
+            verify(helpRequestStatsService, times(1)).deleted(helpRequest1);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("HelpRequest with id 1 deleted", json.get("message"));
@@ -281,6 +307,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
             when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(helpRequestOrig));
+            when(helpRequestRepository.save(any())).then(returnsFirstArg());
 
             // act
             MvcResult response = mockMvc.perform(
@@ -290,13 +317,109 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .content(requestBody)
                                 .with(csrf()))
                 .andExpect(status().isOk()).andReturn();
-            assertEquals(requestBody, response.getResponse().getContentAsString());
 
             // assert
+            ArgumentCaptor<HelpRequest> saved = ArgumentCaptor.forClass(HelpRequest.class);
             verify(helpRequestRepository, times(1)).findById(1L);
-            verify(helpRequestRepository, times(1)).save(helpRequestEdited);
+            verify(helpRequestRepository, times(1)).save(saved.capture());
+            // solving the request stamps solvedTime
+            assertNotNull(saved.getValue().getSolvedTime());
+            helpRequestEdited.setSolvedTime(saved.getValue().getSolvedTime());
+            assertEquals(helpRequestEdited, saved.getValue());
+            verify(helpRequestStatsService, times(1)).updated("7pm-2", false, helpRequestEdited);
             String responseString = response.getResponse().getContentAsString();
-            assertEquals(requestBody, responseString);
+            assertEquals(mapper.writeValueAsString(helpRequestEdited), responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_edit_keeps_solved_time_of_an_already_solved_helprequest() throws Exception {
+            // arrange
+
+            LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+            LocalDateTime solved = LocalDateTime.parse("2022-01-03T00:20:00");
+
+            HelpRequest helpRequestOrig = HelpRequest.builder()
+                            .id(1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("7pm-2")
+                            .tableOrBreakoutRoom("table")
+                            .requestTime(ldt1)
+                            .explanation("need help")
+                            .solved(true)
+                            .solvedTime(solved)
+                            .build();
+
+            HelpRequest helpRequestEdited = HelpRequest.builder()
+                            .id(1)
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .teamId("7pm-2")
+                            .tableOrBreakoutRoom("breakout")
+                            .requestTime(ldt1)
+                            .explanation("need help")
+                            .solved(true)
+                            .solvedTime(LocalDateTime.parse("2030-01-01T00:00:00"))
+                            .build();
+
+            when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(helpRequestOrig));
+            when(helpRequestRepository.save(any())).then(returnsFirstArg());
+
+            // act
+            MvcResult response = mockMvc.perform(
+                put("/api/helprequest?id=1")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(helpRequestEdited))
+                                .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+            // assert
+            helpRequestEdited.setSolvedTime(solved);
+            verify(helpRequestRepository, times(1)).save(helpRequestEdited);
+            verify(helpRequestStatsService, times(1)).updated("7pm-2", true, helpRequestEdited);
+            assertEquals(mapper.writeValueAsString(helpRequestEdited), response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_stats() throws Exception {
+            mockMvc.perform(get("/api/helprequest/stats"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_get_stats() throws Exception {
+            mockMvc.perform(get("/api/helprequest/stats"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_get_stats() throws Exception {
+            // arrange
+
+            List<HelpRequestStats> stats = List.of(
+                            HelpRequestStats.builder()
+                                            .windowMinutes(10080)
+                                            .solvedCount(3)
+                                            .medianSolveSeconds(600L)
+                                            .p90SolveSeconds(1800L)
+                                            .openBacklog(2)
+                                            .build(),
+                            HelpRequestStats.builder()
+                                            .teamId("7pm-2")
+                                            .windowMinutes(10080)
+                                            .openBacklog(1)
+                                            .build());
+            when(helpRequestStatsService.stats()).thenReturn(stats);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/helprequest/stats"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(helpRequestRepository, times(0)).findAll();
+            assertEquals(mapper.writeValueAsString(stats), response.getResponse().getContentAsString());
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -335,4 +458,53 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             assertEquals("HelpRequest with id 1 not found", json.get("message"));
 
     }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all_help_requests() throws Exception {
+
+        // arrange
+
+        HelpRequest first = HelpRequest.builder().id(1L).teamId("s22-5pm-3").build();
+        HelpRequest second = HelpRequest.builder().id(2L).teamId("s22-6pm-4").build();
+        when(helpRequestRepository.findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+        // act
+        MvcResult asyncResult = mockMvc.perform(get("/api/helprequest/stream"))
+                        .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class));
+        String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedLines, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_all_help_requests_as_summaries() throws Exception {
+
+        // arrange
+
+        HelpRequest entity = HelpRequest.builder().id(1L).teamId("s22-5pm-3").explanation("A very long explanation").build();
+        HelpRequestSummary summary = new SpelAwareProxyProjectionFactory().createProjection(HelpRequestSummary.class, entity);
+        when(helpRequestRepository.findAllProjectedBy()).thenReturn(Arrays.asList(summary));
+
+        // act
+        MvcResult asyncResult = mockMvc.perform(get("/api/helprequest/all?view=summary"))
+                        .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(helpRequestRepository, times(1)).findAllProjectedBy();
+        verify(helpRequestRepository, times(0)).findAll();
+        String expectedJson = mapper.writeValueAsString(Arrays.asList(summary));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
 }
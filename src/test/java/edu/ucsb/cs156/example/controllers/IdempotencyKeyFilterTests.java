@@ -0,0 +1,150 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.filters.IdempotencyKeyFilter;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.HelpRequestStatsService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = HelpRequestController.class)
+public class IdempotencyKeyFilterTests extends ControllerTestCase {
+
+  private static final String POST_URL = "/api/helprequest/post?explanation=need help&requesterEmail=cgaucho@ucsb.edu&requestTime=2022-01-03T00:00:00&tableOrBreakoutRoom=table&teamId=7pm-2";
+
+  @MockBean
+  HelpRequestRepository helpRequestRepository;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  SparseFieldsetService sparseFieldsetService;
+
+  @MockBean
+  ChangeFeedService changeFeedService;
+
+  @MockBean
+  HelpRequestStatsService helpRequestStatsService;
+
+  private HelpRequest savedHelpRequest() {
+    return HelpRequest.builder()
+        .id(17L)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("7pm-2")
+        .tableOrBreakoutRoom("table")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("need help")
+        .solved(false)
+        .build();
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void a_retry_with_the_same_key_replays_the_original_response() throws Exception {
+    // arrange
+    when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(savedHelpRequest());
+
+    // act
+    MvcResult first = mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-1").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+    MvcResult second = mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-1").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).save(any(HelpRequest.class));
+    assertNull(first.getResponse().getHeader(IdempotencyKeyFilter.REPLAYED_HEADER));
+    assertEquals("true", second.getResponse().getHeader(IdempotencyKeyFilter.REPLAYED_HEADER));
+    assertEquals(first.getResponse().getContentAsString(), second.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void requests_without_a_key_are_not_deduplicated() throws Exception {
+    // arrange
+    when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(savedHelpRequest());
+
+    // act
+    mockMvc.perform(post(POST_URL).with(csrf())).andExpect(status().isOk());
+    mockMvc.perform(post(POST_URL).with(csrf())).andExpect(status().isOk());
+
+    // assert
+    verify(helpRequestRepository, times(2)).save(any(HelpRequest.class));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void reusing_a_key_with_different_parameters_is_rejected() throws Exception {
+    // arrange
+    when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(savedHelpRequest());
+    mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-2").with(csrf()))
+        .andExpect(status().isOk());
+
+    // act
+    MvcResult response = mockMvc.perform(
+        post(POST_URL.replace("table&", "room 5&")).header(IdempotencyKeyFilter.HEADER, "retry-2").with(csrf()))
+        .andExpect(status().is(422)).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).save(any(HelpRequest.class));
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Idempotency-Key was already used for a request with different parameters", json.get("message"));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void reusing_a_key_with_a_different_body_is_rejected() throws Exception {
+    // arrange
+    when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(savedHelpRequest());
+    mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-4").with(csrf())
+        .contentType(MediaType.APPLICATION_JSON).content("{\"note\":\"first\"}"))
+        .andExpect(status().isOk());
+
+    // act
+    mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-4").with(csrf())
+        .contentType(MediaType.APPLICATION_JSON).content("{\"note\":\"second\"}"))
+        .andExpect(status().is(422));
+
+    // assert
+    verify(helpRequestRepository, times(1)).save(any(HelpRequest.class));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void a_failed_request_does_not_consume_the_key() throws Exception {
+    // arrange
+    when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(savedHelpRequest());
+
+    // act
+    mockMvc.perform(post("/api/helprequest/post?explanation=need help").header(IdempotencyKeyFilter.HEADER, "retry-3")
+        .with(csrf())).andExpect(status().isBadRequest());
+    mockMvc.perform(post(POST_URL).header(IdempotencyKeyFilter.HEADER, "retry-3").with(csrf()))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(IdempotencyKeyFilter.REPLAYED_HEADER));
+
+    // assert
+    verify(helpRequestRepository, times(1)).save(any(HelpRequest.class));
+  }
+}
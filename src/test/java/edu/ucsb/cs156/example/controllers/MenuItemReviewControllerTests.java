@@ -1,10 +1,19 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemReviewWriteBehindService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemReviewPage;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
+import edu.ucsb.cs156.example.models.WriteBehindReceipt;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import java.util.List;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,6 +21,9 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -42,6 +54,21 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
+        @MockBean
+        ChangeFeedService changeFeedService;
+
+        @MockBean
+        MenuItemReviewWriteBehindService menuItemReviewWriteBehindService;
+
+        @MockBean
+        UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+        @MockBean
+        MenuItemLeaderboardService menuItemLeaderboardService;
+
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/menuitemreview/all"))
@@ -51,7 +78,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
-                mockMvc.perform(get("/api/menuitemreview/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/menuitemreview/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().is(200)); // logged
         }
          @Test
@@ -150,7 +179,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 when(menuItemReviewRepository.findAll()).thenReturn(expectedReviews);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/menuitemreview/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -190,6 +221,167 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_review_of_a_menu_item() throws Exception {
+                // arrange
+
+                MenuItemReview review1 = MenuItemReview.builder()
+                                .menuItemId(15L)
+                                .reviewerEmail("cguacho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("Meh")
+                                .build();
+
+                when(ucsbDiningCommonsMenuItemRepository.existsById(eq(15L))).thenReturn(true);
+                when(menuItemReviewRepository.save(eq(review1))).thenReturn(review1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?reviewerEmail=cguacho@ucsb.edu&stars=5&dateReviewed=2022-01-03T00:00:00&comments=Meh&menuItemId=15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).save(review1);
+                verify(menuItemLeaderboardService, times(1)).reviewAdded(review1);
+                assertEquals(mapper.writeValueAsString(review1), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_a_review_of_an_unknown_menu_item_is_rejected() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsMenuItemRepository.existsById(eq(99L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?reviewerEmail=cguacho@ucsb.edu&stars=5&dateReviewed=2022-01-03T00:00:00&comments=Meh&menuItemId=99")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("menuItemId 99 does not exist", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_a_review_with_too_many_stars_is_rejected() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?reviewerEmail=cguacho@ucsb.edu&stars=9&dateReviewed=2022-01-03T00:00:00&comments=Meh")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).save(any());
+                verify(menuItemReviewWriteBehindService, times(0)).submit(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("stars must be between 0 and 5", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_page_through_reviews_of_an_item() throws Exception {
+                // arrange
+
+                MenuItemReview newest = MenuItemReview.builder()
+                                .itemid(9L)
+                                .menuItemId(15L)
+                                .reviewerEmail("cguacho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-05T00:00:00"))
+                                .comments("Great")
+                                .build();
+
+                MenuItemReview older = MenuItemReview.builder()
+                                .itemid(4L)
+                                .menuItemId(15L)
+                                .reviewerEmail("ldelplaya@ucsb.edu")
+                                .stars(2)
+                                .dateReviewed(LocalDateTime.parse("2022-01-04T00:00:00"))
+                                .comments("Cold")
+                                .build();
+
+                MenuItemReview oldest = MenuItemReview.builder()
+                                .itemid(2L)
+                                .menuItemId(15L)
+                                .reviewerEmail("pdg@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("Meh")
+                                .build();
+
+                when(menuItemReviewRepository.findByMenuItemIdAndDateReviewedNotNullOrderByDateReviewedDescItemidDesc(
+                                eq(15L), eq(PageRequest.of(0, 3)))).thenReturn(List.of(newest, older, oldest));
+                when(menuItemReviewRepository.findPageAfter(eq(15L), eq(LocalDateTime.parse("2022-01-04T00:00:00")),
+                                eq(4L), eq(PageRequest.of(0, 3)))).thenReturn(List.of(oldest));
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/menuitemreview/byitem?menuItemId=15&size=2"))
+                                .andExpect(status().isOk()).andReturn();
+                Map<String, Object> firstJson = responseToJson(first);
+                String cursor = (String) firstJson.get("nextCursor");
+                MvcResult second = mockMvc.perform(get("/api/menuitemreview/byitem?menuItemId=15&size=2&cursor=" + cursor))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(new MenuItemReviewPage(List.of(newest, older), cursor)),
+                                first.getResponse().getContentAsString());
+                assertEquals(mapper.writeValueAsString(new MenuItemReviewPage(List.of(oldest), null)),
+                                second.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void reviews_by_item_rejects_a_malformed_cursor() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/byitem?menuItemId=15&cursor=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("cursor bogus is not valid", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_post_is_accepted_without_saving_when_write_behind_is_enabled() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                MenuItemReview review1 = MenuItemReview.builder()
+                                .reviewerEmail("cguacho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(ldt1)
+                                .comments("Meh")
+                                .build();
+
+                WriteBehindReceipt receipt = WriteBehindReceipt.builder()
+                                .sequence(12L)
+                                .pending(3)
+                                .review(review1)
+                                .build();
+
+                when(menuItemReviewWriteBehindService.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehindService.submit(eq(review1))).thenReturn(receipt);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?reviewerEmail=cguacho@ucsb.edu&stars=5&dateReviewed=2022-01-03T00:00:00&comments=Meh")
+                                                .with(csrf()))
+                                .andExpect(status().isAccepted()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).save(any(MenuItemReview.class));
+                String expectedJson = mapper.writeValueAsString(receipt);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_delete_a_review() throws Exception {
@@ -264,6 +456,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(reviewEdited);
 
                 when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(reviewOrig));
+                when(menuItemReviewRepository.save(eq(reviewEdited))).thenReturn(reviewEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -314,4 +507,53 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_menu_item_reviews() throws Exception {
+
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().itemid(1L).stars(5).build();
+                MenuItemReview second = MenuItemReview.builder().itemid(2L).stars(3).build();
+                when(menuItemReviewRepository.findByItemidGreaterThanOrderByItemid(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/menuitemreview/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findByItemidGreaterThanOrderByItemid(eq(Long.MIN_VALUE), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_menu_item_reviews_as_summaries() throws Exception {
+
+                // arrange
+
+                MenuItemReview entity = MenuItemReview.builder().itemid(1L).stars(5).comments("A very long comment").build();
+                MenuItemReviewSummary summary = new SpelAwareProxyProjectionFactory().createProjection(MenuItemReviewSummary.class, entity);
+                when(menuItemReviewRepository.findAllProjectedBy()).thenReturn(Arrays.asList(summary));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/menuitemreview/all?view=summary"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findAllProjectedBy();
+                verify(menuItemReviewRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(summary));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+}
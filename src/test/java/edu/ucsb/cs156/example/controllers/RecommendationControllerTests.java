@@ -1,17 +1,27 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.RecommendationExportService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Recommendation;
+import edu.ucsb.cs156.example.models.RecommendationSummary;
 import edu.ucsb.cs156.example.repositories.RecommendationRepository;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -28,6 +38,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +54,15 @@ public class RecommendationControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
+        @MockBean
+        ChangeFeedService changeFeedService;
+
+        @MockBean
+        RecommendationExportService recommendationExportService;
+
         // Authorization tests for /api/Recommendation/admin/all
 
         @Test
@@ -53,7 +74,9 @@ public class RecommendationControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
-                mockMvc.perform(get("/api/Recommendation/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().is(200)); // logged
         }
 
@@ -166,7 +189,9 @@ public class RecommendationControllerTests extends ControllerTestCase {
                 when(recommendationRepository.findAll()).thenReturn(expectedRecommendations);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/Recommendation/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -294,6 +319,7 @@ public class RecommendationControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(r1);
 
                 when(recommendationRepository.findById(eq(67L))).thenReturn(Optional.of(r2));
+                when(recommendationRepository.save(eq(r1))).thenReturn(r1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -347,4 +373,146 @@ public class RecommendationControllerTests extends ControllerTestCase {
                 assertEquals("Recommendation with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_recommendations() throws Exception {
+
+                // arrange
+
+                Recommendation first = Recommendation.builder().id(1L).professorEmail("prof1@ucsb.edu").build();
+                Recommendation second = Recommendation.builder().id(2L).professorEmail("prof2@ucsb.edu").build();
+                when(recommendationRepository.findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(recommendationRepository, times(1)).findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_recommendations_as_summaries() throws Exception {
+
+                // arrange
+
+                Recommendation entity = Recommendation.builder().id(1L).professorEmail("prof1@ucsb.edu").explanation("A very long explanation").build();
+                RecommendationSummary summary = new SpelAwareProxyProjectionFactory().createProjection(RecommendationSummary.class, entity);
+                when(recommendationRepository.findAllProjectedBy()).thenReturn(Arrays.asList(summary));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/all?view=summary"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(recommendationRepository, times(1)).findAllProjectedBy();
+                verify(recommendationRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(summary));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/Recommendation/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_csv_for_a_professor_and_date_range() throws Exception {
+
+                // arrange
+
+                doAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(4);
+                        out.write("id,requesterEmail\r\n1,student@ucsb.edu\r\n".getBytes(StandardCharsets.UTF_8));
+                        return null;
+                }).when(recommendationExportService).export(any(), any(), any(), any(), any());
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get(
+                                "/api/Recommendation/export?professorEmail=prof1@ucsb.edu&from=2022-01-01T00:00:00&to=2022-07-01T00:00:00"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"recommendations.csv\""))
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationExportService, times(1)).export(eq("prof1@ucsb.edu"),
+                                eq(LocalDateTime.parse("2022-01-01T00:00:00")), eq(LocalDateTime.parse("2022-07-01T00:00:00")),
+                                eq(RecommendationExportService.Format.CSV), any());
+                assertEquals("id,requesterEmail\r\n1,student@ucsb.edu\r\n", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_gzipped_json_lines() throws Exception {
+
+                // arrange
+
+                String lines = "{\"id\":1}\n{\"id\":2}\n";
+                doAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(4);
+                        out.write(lines.getBytes(StandardCharsets.UTF_8));
+                        return null;
+                }).when(recommendationExportService).export(any(), any(), any(), any(), any());
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/export?format=jsonl")
+                                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Vary", "Accept-Encoding"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationExportService, times(1)).export(isNull(), isNull(), isNull(),
+                                eq(RecommendationExportService.Format.JSONL), any());
+                byte[] body = response.getResponse().getContentAsByteArray();
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                        assertEquals(lines, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_does_not_gzip_when_gzip_is_refused() throws Exception {
+                MvcResult asyncResult = mockMvc.perform(get("/api/Recommendation/export")
+                                .header("Accept-Encoding", "gzip;q=0"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Content-Encoding"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_rejects_unknown_format_and_empty_range() throws Exception {
+                MvcResult badFormat = mockMvc.perform(get("/api/Recommendation/export?format=xlsx"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("format must be csv or jsonl", responseToJson(badFormat).get("message"));
+
+                MvcResult badRange = mockMvc.perform(get("/api/Recommendation/export?from=2022-07-01T00:00:00&to=2022-01-01T00:00:00"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("from must be before to", responseToJson(badRange).get("message"));
+                verify(recommendationExportService, times(0)).export(any(), any(), any(), any(), any());
+        }
 }
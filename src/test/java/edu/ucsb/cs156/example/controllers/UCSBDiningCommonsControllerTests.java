@@ -1,17 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.DiningCommonsDetailService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsDetail;
+import edu.ucsb.cs156.example.models.MenuItemDetail;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -40,6 +48,15 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
+        @MockBean
+        ChangeFeedService changeFeedService;
+
+        @MockBean
+        DiningCommonsDetailService diningCommonsDetailService;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -51,7 +68,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
-                mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().is(200)); // logged
         }
 
@@ -79,6 +98,63 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
         // Tests with mocks for database actions
 
+        @Test
+        public void logged_out_users_cannot_get_detail() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/detail?code=ortega"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_commons_detail() throws Exception {
+
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                DiningCommonsDetail detail = DiningCommonsDetail.builder()
+                                .commons(ortega)
+                                .stations(Map.of("Entree Specials", List.of(MenuItemDetail.builder()
+                                                .id(15L)
+                                                .name("Baked Pesto Pasta with Chicken")
+                                                .build())))
+                                .build();
+
+                when(diningCommonsDetailService.getDetail(eq("ortega"))).thenReturn(detail);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/detail?code=ortega"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(detail);
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void commons_detail_for_unknown_code_is_404() throws Exception {
+
+                // arrange
+                when(diningCommonsDetailService.getDetail(eq("munger")))
+                                .thenThrow(new EntityNotFoundException(UCSBDiningCommons.class, "munger"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/detail?code=munger"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id munger not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "USER" })
         @Test
         public void test_that_logged_in_user_can_get_by_id_when_the_id_exists() throws Exception {
@@ -161,7 +237,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -281,6 +359,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
                 when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.save(eq(carrilloEdited))).thenReturn(carrilloEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -332,4 +411,28 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_commons() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCode(eq(""), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommons/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCode(eq(""), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
 }
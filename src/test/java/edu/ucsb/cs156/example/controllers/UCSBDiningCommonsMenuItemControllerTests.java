@@ -1,19 +1,32 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.DiningCommonsDetailService;
+import edu.ucsb.cs156.example.services.MenuItemImportService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemUpdatePublisher;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ImportJobStatus;
+import edu.ucsb.cs156.example.models.TopMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -39,11 +52,66 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @MockBean
         UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+        @MockBean
+        MenuItemReviewRepository menuItemReviewRepository;
+
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
+        @MockBean
+        ChangeFeedService changeFeedService;
+
+        @MockBean
+        DiningCommonsDetailService diningCommonsDetailService;
+
+        @MockBean
+        MenuItemLeaderboardService menuItemLeaderboardService;
+
+        @MockBean
+        MenuItemUpdatePublisher menuItemUpdatePublisher;
+
+        @MockBean
+        MenuItemImportService menuItemImportService;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_top_menu_items_of_a_commons() throws Exception {
+
+                // arrange
+                List<TopMenuItem> top = List.of(TopMenuItem.builder()
+                                .id(15L)
+                                .name("Baked Pesto Pasta with Chicken")
+                                .diningCommonsCode("ortega")
+                                .station("Entree Specials")
+                                .reviewCount(12)
+                                .averageStars(4.5)
+                                .score(4.2)
+                                .build());
+                when(menuItemLeaderboardService.top(eq("ortega"), eq(5))).thenReturn(top);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/top?commons=ortega&n=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(top), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void top_menu_items_rejects_n_over_100() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/top?n=101"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("n must be between 1 and 100", json.get("message"));
+        }
+
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
@@ -53,7 +121,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
-                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().is(200)); // logged
         }
 
@@ -155,7 +225,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(expectedDiningCommonsMenuItems);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -189,6 +261,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 // assert
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(ucsbDiningCommonsMenuItem1);
+                verify(menuItemUpdatePublisher, times(1)).created(ucsbDiningCommonsMenuItem1);
                 String expectedJson = mapper.writeValueAsString(ucsbDiningCommonsMenuItem1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -218,11 +291,33 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 // assert
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(diningCommonsDetailService, times(1)).evict("ortega");
+                verify(menuItemUpdatePublisher, times(1)).deleted(ucsbDiningCommonsMenuItem1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_DiningCommonsMenuItem_that_has_reviews() throws Exception {
+                // arrange
+
+                when(menuItemReviewRepository.existsByMenuItemId(15L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommonsmenuitem?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(0)).delete(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommonsMenuItem with id 15 still has reviews and cannot be deleted",
+                                json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_tries_to_delete_non_existant_ucsbDiningCommonsMenuItem_and_gets_right_error_message()
@@ -266,6 +361,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
 
                 when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItemOrig));
+                when(ucsbDiningCommonsMenuItemRepository.save(eq(ucsbDiningCommonsMenuItemEdited))).thenReturn(ucsbDiningCommonsMenuItemEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -279,6 +375,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 // assert
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(ucsbDiningCommonsMenuItemEdited); // should be saved with correct user
+                verify(menuItemUpdatePublisher, times(1)).updated("ortega", ucsbDiningCommonsMenuItemEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -315,4 +412,117 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_menu_items() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).name("Pizza").build();
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().id(2L).name("Salad").build();
+                when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
+
+        private static final MockMultipartFile IMPORT_FILE = new MockMultipartFile("file", "menu.csv", "text/csv",
+                        "diningCommonsCode,name,station\nortega,Pizza,Grill\n".getBytes());
+
+        @Test
+        public void logged_out_users_cannot_import() throws Exception {
+                mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitem/import").file(IMPORT_FILE).with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(multipart("/api/ucsbdiningcommonsmenuitem/import").file(IMPORT_FILE).with(csrf()))
+                                .andExpect(status().is(403));
+                verify(menuItemImportService, times(0)).start(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_start_an_import() throws Exception {
+
+                // arrange
+
+                ImportJobStatus queued = ImportJobStatus.builder()
+                                .id("job-1")
+                                .fileName("menu.csv")
+                                .state(ImportJobStatus.State.QUEUED)
+                                .totalBytes(IMPORT_FILE.getSize())
+                                .errors(List.of())
+                                .build();
+                when(menuItemImportService.start(any())).thenReturn(queued);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                multipart("/api/ucsbdiningcommonsmenuitem/import").file(IMPORT_FILE).with(csrf()))
+                                .andExpect(status().isAccepted()).andReturn();
+
+                // assert
+                verify(menuItemImportService, times(1)).start(any());
+                assertEquals(mapper.writeValueAsString(queued), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_get_and_cancel_an_import() throws Exception {
+
+                // arrange
+
+                ImportJobStatus running = ImportJobStatus.builder()
+                                .id("job-1")
+                                .state(ImportJobStatus.State.RUNNING)
+                                .linesRead(1000)
+                                .inserted(998)
+                                .errorCount(2)
+                                .errors(List.of())
+                                .build();
+                when(menuItemImportService.status(eq("job-1"))).thenReturn(running);
+                when(menuItemImportService.cancel(eq("job-1"))).thenReturn(running);
+
+                // act
+                MvcResult status = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/import?jobId=job-1"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult cancel = mockMvc.perform(delete("/api/ucsbdiningcommonsmenuitem/import?jobId=job-1").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemImportService, times(1)).cancel("job-1");
+                assertEquals(mapper.writeValueAsString(running), status.getResponse().getContentAsString());
+                assertEquals(mapper.writeValueAsString(running), cancel.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_gets_404_for_an_unknown_import() throws Exception {
+
+                // arrange
+
+                when(menuItemImportService.status(eq("nope")))
+                                .thenThrow(new EntityNotFoundException(ImportJobStatus.class, "nope"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/import?jobId=nope"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ImportJobStatus with id nope not found", json.get("message"));
+        }
 }
@@ -1,6 +1,8 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
@@ -12,6 +14,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -41,6 +44,12 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    SparseFieldsetService sparseFieldsetService;
+
+    @MockBean
+    ChangeFeedService changeFeedService;
+
     // Authorization tests for /api/UCSBOrganization/all
 
     @Test
@@ -52,7 +61,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
-            mockMvc.perform(get("/api/UCSBOrganization/all"))
+            MvcResult asyncResult = mockMvc.perform(get("/api/UCSBOrganization/all"))
+                            .andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(asyncResult))
                             .andExpect(status().is(200)); // logged
     }
 
@@ -107,7 +118,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 when(ucsbOrganizationRepository.findAll()).thenReturn(expectedOrganizations);
 
                 // act
-                MvcResult response = mockMvc.perform(get("/api/UCSBOrganization/all"))
+                MvcResult asyncResult = mockMvc.perform(get("/api/UCSBOrganization/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
@@ -215,6 +228,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(vsaEdited);
 
                 when(ucsbOrganizationRepository.findById(eq("VSA"))).thenReturn(Optional.of(vsaOrig));
+                when(ucsbOrganizationRepository.save(eq(vsaEdited))).thenReturn(vsaEdited);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -312,4 +326,28 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id VSA not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all_organizations() throws Exception {
+
+                // arrange
+
+                UCSBOrganization first = UCSBOrganization.builder().orgCode("VSA").build();
+                UCSBOrganization second = UCSBOrganization.builder().orgCode("KRC").build();
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCode(eq(""), any(Pageable.class))).thenReturn(Arrays.asList(first, second));
+
+                // act
+                MvcResult asyncResult = mockMvc.perform(get("/api/UCSBOrganization/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCode(eq(""), any(Pageable.class));
+                String expectedLines = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedLines, responseString);
+        }
+}
@@ -3,16 +3,21 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.context.annotation.Import;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,6 +26,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +37,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  SparseFieldsetService sparseFieldsetService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -55,19 +66,84 @@ public class UsersControllerTests extends ControllerTestCase {
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
+    when(userRepository.findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(expectedUsers);
     String expectedJson = mapper.writeValueAsString(expectedUsers);
     
     // act
 
-    MvcResult response = mockMvc.perform(get("/api/admin/users"))
+    MvcResult asyncResult = mockMvc.perform(get("/api/admin/users"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(userRepository, times(1)).findByIdGreaterThanOrderById(eq(Long.MIN_VALUE), any(Pageable.class));
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_logged_in__filtered_by_prefix() throws Exception {
+
+    // arrange
+
+    User u1 = User.builder().id(1L).email("cgaucho@ucsb.edu").fullName("Chris Gaucho").build();
+
+    ArrayList<User> expectedUsers = new ArrayList<>();
+    expectedUsers.add(u1);
+
+    when(userRepository.findPageAfterWithPrefix(eq(Long.MIN_VALUE), eq("cg"), any(Pageable.class)))
+        .thenReturn(expectedUsers);
+    String expectedJson = mapper.writeValueAsString(expectedUsers);
+
+    // act
+
+    MvcResult asyncResult = mockMvc.perform(get("/api/admin/users?q=cg"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
         .andExpect(status().isOk()).andReturn();
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userRepository, times(1)).findPageAfterWithPrefix(eq(Long.MIN_VALUE), eq("cg"), any(Pageable.class));
+    verify(userRepository, times(0)).findByIdGreaterThanOrderById(anyLong(), any(Pageable.class));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_logged_in__only_requested_fields() throws Exception {
+
+    // arrange
+
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", 1);
+    row.put("email", "cgaucho@ucsb.edu");
+    when(sparseFieldsetService.keysetReader(eq(User.class), eq("id,email")))
+        .thenReturn((last, pageSize) -> last == null ? Arrays.asList(row) : List.of());
 
+    // act
+
+    MvcResult asyncResult = mockMvc.perform(get("/api/admin/users?fields=id,email"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(sparseFieldsetService, times(1)).parseFields(eq(User.class), eq("id,email"));
+    verify(userRepository, times(0)).findByIdGreaterThanOrderById(anyLong(), any(Pageable.class));
+    assertEquals("[{\"id\":1,\"email\":\"cgaucho@ucsb.edu\"}]", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_logged_in__q_and_fields_cannot_be_combined() throws Exception {
+    mockMvc.perform(get("/api/admin/users?q=cg&fields=id"))
+        .andExpect(status().isBadRequest());
   }
 }
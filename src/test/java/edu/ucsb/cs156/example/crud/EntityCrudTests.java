@@ -0,0 +1,278 @@
+package edu.ucsb.cs156.example.crud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+
+class EntityCrudTests {
+
+  HelpRequestRepository helpRequestRepository = mock(HelpRequestRepository.class);
+  UCSBOrganizationRepository ucsbOrganizationRepository = mock(UCSBOrganizationRepository.class);
+
+  private HelpRequest helpRequest() {
+    return HelpRequest.builder()
+        .id(7L)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("Need help with Swagger-ui")
+        .solved(false)
+        .build();
+  }
+
+  @Test
+  void test_update_copies_every_property_except_the_id() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().build());
+    when(helpRequestRepository.findById(7L)).thenReturn(Optional.of(helpRequest()));
+    when(helpRequestRepository.save(any())).then(invocation -> invocation.getArgument(0));
+
+    HelpRequest incoming = helpRequest();
+    incoming.setId(99L);
+    incoming.setTeamId("f22-7pm-2");
+    incoming.setExplanation(null);
+    incoming.setSolved(true);
+
+    HelpRequest updated = crud.update(7L, incoming);
+
+    assertEquals(7L, updated.getId());
+    assertEquals("f22-7pm-2", updated.getTeamId());
+    assertEquals(null, updated.getExplanation());
+    assertEquals(true, updated.getSolved());
+    verify(helpRequestRepository).save(updated);
+  }
+
+  @Test
+  void test_update_returns_the_saved_instance_with_its_new_version() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().build());
+    when(helpRequestRepository.findById(7L)).thenReturn(Optional.of(helpRequest()));
+    HelpRequest saved = helpRequest();
+    saved.setVersion(1L);
+    when(helpRequestRepository.save(any())).thenReturn(saved);
+
+    HelpRequest updated = crud.update(7L, helpRequest());
+
+    assertSame(saved, updated);
+    assertEquals("\"1\"", crud.etag(updated));
+  }
+
+  @Test
+  void test_writes_are_recorded_in_the_change_feed() {
+    ChangeFeedService changeFeed = mock(ChangeFeedService.class);
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().changeFeed(changeFeed).build());
+    when(helpRequestRepository.save(any())).then(invocation -> invocation.getArgument(0));
+    when(helpRequestRepository.findById(7L)).thenReturn(Optional.of(helpRequest()));
+
+    crud.create(helpRequest());
+    crud.update(7L, helpRequest());
+    crud.delete(7L);
+
+    verify(changeFeed).record("helprequest", 7L, ChangeType.INSERT);
+    verify(changeFeed).record("helprequest", 7L, ChangeType.UPDATE);
+    verify(changeFeed).record("helprequest", 7L, ChangeType.DELETE);
+  }
+
+  @Test
+  void test_a_failed_change_feed_write_rolls_back_the_entity_write() {
+    ChangeFeedService changeFeed = mock(ChangeFeedService.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().changeFeed(changeFeed).transactions(new TransactionTemplate(transactionManager)).build());
+    when(helpRequestRepository.save(any())).then(invocation -> invocation.getArgument(0));
+    doThrow(new IllegalStateException("changelog unavailable")).when(changeFeed)
+        .record("helprequest", 7L, ChangeType.INSERT);
+
+    assertThrows(IllegalStateException.class, () -> crud.create(helpRequest()));
+
+    verify(helpRequestRepository).save(any());
+    verify(transactionManager).rollback(any());
+    verify(transactionManager, times(0)).commit(any());
+  }
+
+  @Test
+  void test_update_can_skip_nulls() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().skipNullsOnUpdate(true).build());
+    when(helpRequestRepository.findById(7L)).thenReturn(Optional.of(helpRequest()));
+    when(helpRequestRepository.save(any())).then(invocation -> invocation.getArgument(0));
+
+    HelpRequest incoming = new HelpRequest();
+    incoming.setTeamId("f22-7pm-2");
+
+    HelpRequest updated = crud.update(7L, incoming);
+
+    assertEquals("f22-7pm-2", updated.getTeamId());
+    assertEquals("cgaucho@ucsb.edu", updated.getRequesterEmail());
+    assertEquals("Need help with Swagger-ui", updated.getExplanation());
+  }
+
+  @Test
+  void test_update_can_copy_the_id() {
+    EntityCrud<UCSBOrganization, String> crud = new EntityCrud<>(UCSBOrganization.class, ucsbOrganizationRepository,
+        CrudOptions.builder().copyIdOnUpdate(true).build());
+    UCSBOrganization existing = UCSBOrganization.builder().orgCode("SKY").orgTranslation("Skydiving Club").build();
+    when(ucsbOrganizationRepository.findById("SKY")).thenReturn(Optional.of(existing));
+    when(ucsbOrganizationRepository.save(any())).then(invocation -> invocation.getArgument(0));
+
+    UCSBOrganization updated = crud.update("SKY",
+        UCSBOrganization.builder().orgCode("SKYD").orgTranslation("Skydiving Club").build());
+
+    assertEquals("SKYD", updated.getOrgCode());
+  }
+
+  @Test
+  void test_missing_entity_throws_not_found() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().build());
+    when(helpRequestRepository.findById(15L)).thenReturn(Optional.empty());
+
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class, () -> crud.delete(15L));
+    assertEquals("HelpRequest with id 15 not found", e.getMessage());
+  }
+
+  @Test
+  void test_cached_reads_hit_the_repository_once_until_updated() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().cacheReads(true).build());
+    HelpRequest existing = helpRequest();
+    when(helpRequestRepository.findById(7L)).thenReturn(Optional.of(existing));
+
+    assertSame(existing, crud.findById(7L));
+    assertSame(existing, crud.findById(7L));
+    verify(helpRequestRepository, times(1)).findById(7L);
+
+    crud.update(7L, helpRequest());
+    crud.findById(7L);
+    verify(helpRequestRepository, times(3)).findById(7L);
+  }
+
+  @Test
+  void test_read_that_races_with_an_update_is_not_cached() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().cacheReads(true).build());
+    AtomicInteger reads = new AtomicInteger();
+    when(helpRequestRepository.findById(7L)).thenAnswer(invocation -> {
+      if (reads.incrementAndGet() == 1) {
+        // another request updates the row after this read has loaded it
+        crud.update(7L, helpRequest());
+      }
+      return Optional.of(helpRequest());
+    });
+
+    crud.findById(7L);
+    crud.findById(7L);
+
+    // the first read, the update's own read, and a second read that missed the cache
+    verify(helpRequestRepository, times(3)).findById(7L);
+  }
+
+  @Test
+  void test_full_cache_drops_the_least_recently_read_entity() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().cacheReads(true).maxCachedEntries(2).build());
+    when(helpRequestRepository.findById(any())).thenReturn(Optional.of(helpRequest()));
+
+    crud.findById(1L);
+    crud.findById(2L);
+    crud.findById(1L);
+    crud.findById(3L);
+    crud.findById(1L);
+    crud.findById(2L);
+
+    verify(helpRequestRepository, times(1)).findById(1L);
+    verify(helpRequestRepository, times(2)).findById(2L);
+    verify(helpRequestRepository, times(1)).findById(3L);
+  }
+
+  @Test
+  void test_findPage_caps_the_page_size() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().maxPageSize(50).build());
+
+    crud.findPage(PageRequest.of(2, 5000));
+
+    verify(helpRequestRepository).findAll(PageRequest.of(2, 50));
+    verify(helpRequestRepository, times(1)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  void test_keysetReader_starts_each_page_after_the_last_id() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().build());
+    HelpRequest last = helpRequest();
+    last.setId(42L);
+    KeysetReader<HelpRequest> reader = crud.keysetReader(helpRequestRepository::findByIdGreaterThanOrderById,
+        Long.MIN_VALUE);
+
+    reader.readAfter(null, 10);
+    reader.readAfter(last, 10);
+
+    verify(helpRequestRepository).findByIdGreaterThanOrderById(Long.MIN_VALUE, PageRequest.of(0, 10));
+    verify(helpRequestRepository).findByIdGreaterThanOrderById(42L, PageRequest.of(0, 10));
+  }
+
+  @Test
+  void test_findBatch_keeps_request_order_and_marks_missing_ids() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().build());
+    HelpRequest seven = helpRequest();
+    HelpRequest three = helpRequest();
+    three.setId(3L);
+    when(helpRequestRepository.findAllById(Set.of(7L, 5L, 3L))).thenReturn(List.of(three, seven));
+
+    BatchResult<HelpRequest, Long> batch = crud.findBatch(List.of(7L, 5L, 3L, 7L));
+
+    assertEquals(Arrays.asList(seven, null, three, seven), batch.getResults());
+    assertEquals(List.of(5L), batch.getMissing());
+    verify(helpRequestRepository, times(1)).findAllById(any());
+  }
+
+  @Test
+  void test_findBatch_rejects_too_many_or_no_ids() {
+    EntityCrud<HelpRequest, Long> crud = new EntityCrud<>(HelpRequest.class, helpRequestRepository,
+        CrudOptions.builder().maxBatchSize(2).build());
+
+    BadRequestException tooMany = assertThrows(BadRequestException.class,
+        () -> crud.findBatch(List.of(1L, 2L, 3L)));
+    assertEquals("at most 2 ids may be requested at once; got 3", tooMany.getMessage());
+
+    BadRequestException none = assertThrows(BadRequestException.class, () -> crud.findBatch(List.of()));
+    assertEquals("ids must name at least one HelpRequest", none.getMessage());
+
+    BadRequestException blank = assertThrows(BadRequestException.class,
+        () -> crud.findBatch(Arrays.asList(1L, null)));
+    assertEquals("ids must not contain blank entries", blank.getMessage());
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.filters.IdempotencyStore.Reservation;
+import edu.ucsb.cs156.example.filters.IdempotencyStore.StoredResponse;
+
+class IdempotencyStoreTests {
+
+  AtomicLong now = new AtomicLong(1000);
+
+  @Test
+  void test_second_reservation_of_a_key_shares_the_first_entry() {
+    IdempotencyStore store = new IdempotencyStore(100, 10, now::get);
+
+    Reservation first = store.reserve("k", "f");
+    Reservation second = store.reserve("k", "f");
+
+    assertTrue(first.getOwner());
+    assertFalse(second.getOwner());
+    assertSame(first.getEntry(), second.getEntry());
+  }
+
+  @Test
+  void test_entries_expire_after_the_ttl() {
+    IdempotencyStore store = new IdempotencyStore(100, 10, now::get);
+    store.reserve("k", "f").getEntry().getResponse().complete(new StoredResponse(200, null, new byte[0]));
+
+    now.addAndGet(101);
+
+    assertTrue(store.reserve("k", "f").getOwner());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void test_oldest_finished_entries_are_evicted_at_capacity() {
+    IdempotencyStore store = new IdempotencyStore(100, 2, now::get);
+    store.reserve("a", "f").getEntry().getResponse().complete(null);
+    store.reserve("b", "f").getEntry().getResponse().complete(null);
+
+    store.reserve("c", "f");
+
+    assertEquals(2, store.size());
+    assertTrue(store.reserve("a", "f").getOwner());
+  }
+
+  @Test
+  void test_running_entries_are_not_evicted() {
+    IdempotencyStore store = new IdempotencyStore(100, 1, now::get);
+    Reservation running = store.reserve("a", "f");
+
+    store.reserve("b", "f");
+
+    assertSame(running.getEntry(), store.reserve("a", "f").getEntry());
+  }
+}
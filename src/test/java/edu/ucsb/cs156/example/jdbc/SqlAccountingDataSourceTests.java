@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SqlAccountingDataSourceTests {
+
+  DataSource target = mock(DataSource.class);
+  Connection connection = mock(Connection.class);
+  PreparedStatement statement = mock(PreparedStatement.class);
+  ResultSet resultSet = mock(ResultSet.class);
+
+  SqlAccountingDataSource dataSource = new SqlAccountingDataSource(target);
+
+  @BeforeEach
+  void setup() throws Exception {
+    when(target.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement("select * from articles")).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+  }
+
+  @AfterEach
+  void cleanup() {
+    SqlStats.unbind();
+  }
+
+  private void readAll() throws Exception {
+    try (Connection c = dataSource.getConnection();
+        PreparedStatement ps = c.prepareStatement("select * from articles");
+        ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+      }
+    }
+  }
+
+  @Test
+  void test_counts_statements_rows_and_captures_sql_for_bound_stats() throws Exception {
+    SqlStats stats = new SqlStats(10);
+    SqlStats.bind(stats);
+
+    readAll();
+
+    assertEquals(1, stats.getQueries());
+    assertEquals(2, stats.getRows());
+    assertTrue(stats.getTimeMillis() >= 0);
+    assertEquals(List.of("select * from articles"), stats.getStatements());
+    verify(resultSet).close();
+    verify(connection).close();
+  }
+
+  @Test
+  void test_capture_limit_zero_keeps_no_sql() throws Exception {
+    SqlStats stats = new SqlStats(0);
+    SqlStats.bind(stats);
+
+    readAll();
+
+    assertEquals(1, stats.getQueries());
+    assertEquals(List.of(), stats.getStatements());
+  }
+
+  @Test
+  void test_sql_is_not_kept_before_the_request_is_slow() throws Exception {
+    SqlStats stats = new SqlStats(10, TimeUnit.HOURS.toNanos(1));
+    SqlStats.bind(stats);
+
+    readAll();
+
+    assertEquals(1, stats.getQueries());
+    assertEquals(2, stats.getRows());
+    assertEquals(List.of(), stats.getStatements());
+  }
+
+  @Test
+  void test_proxies_answer_equals_hashCode_and_toString_themselves() throws Exception {
+    SqlStats.bind(new SqlStats(0));
+    Connection c = dataSource.getConnection();
+    PreparedStatement ps = c.prepareStatement("select * from articles");
+    ResultSet rs = ps.executeQuery();
+
+    assertTrue(c.equals(c));
+    assertFalse(c.equals(connection));
+    assertFalse(ps.equals(statement));
+    assertFalse(rs.equals(resultSet));
+    assertEquals(System.identityHashCode(c), c.hashCode());
+    assertTrue(ps.toString().startsWith("SqlAccounting proxy for "));
+  }
+
+  @Test
+  void test_only_delegates_when_no_stats_bound() throws Exception {
+    readAll();
+
+    verify(statement).executeQuery();
+    verify(statement).close();
+  }
+
+  @Test
+  void test_propagate_records_into_submitting_threads_stats() throws Exception {
+    SqlStats stats = new SqlStats(0);
+    SqlStats.bind(stats);
+    Runnable task = SqlStats.propagate(() -> {
+      try {
+        readAll();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    SqlStats.unbind();
+
+    Thread worker = new Thread(task);
+    worker.start();
+    worker.join();
+
+    assertEquals(1, stats.getQueries());
+    assertEquals(2, stats.getRows());
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+
+class ArticlePurgeServiceTests {
+
+  static final LocalDateTime THREE_AM = LocalDateTime.parse("2022-10-20T03:00:00");
+
+  AtomicLong now = new AtomicLong(millis(THREE_AM));
+  ArticleRepository articleRepository = mock(ArticleRepository.class);
+
+  private static long millis(LocalDateTime time) {
+    return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  // 30 day retention, batches of 100, off peak from 2:00 to 5:00, no pause, no background runs
+  private ArticlePurgeService service(int startHour, int endHour) {
+    ArticlePurgeService service = new ArticlePurgeService(30, 100, startHour, endHour, 0, 0, now::get);
+    service.articleRepository = articleRepository;
+    return service;
+  }
+
+  @Test
+  void test_purge_removes_batches_until_a_short_one() throws Exception {
+    when(articleRepository.purgeDeletedOlderThan(anyInt(), anyInt())).thenReturn(100, 100, 42);
+
+    assertEquals(242, service(2, 5).purge());
+
+    verify(articleRepository, times(3)).purgeDeletedOlderThan(30, 100);
+  }
+
+  @Test
+  void test_purge_stops_when_off_peak_hours_end() throws Exception {
+    ArticlePurgeService service = service(2, 5);
+    when(articleRepository.purgeDeletedOlderThan(anyInt(), anyInt())).thenAnswer(inv -> {
+      now.set(millis(THREE_AM.withHour(5)));
+      return 100;
+    });
+
+    assertEquals(100, service.purge());
+
+    verify(articleRepository, times(1)).purgeDeletedOlderThan(anyInt(), anyInt());
+  }
+
+  @Test
+  void test_purge_does_nothing_during_peak_hours() throws Exception {
+    now.set(millis(THREE_AM.withHour(12)));
+
+    assertEquals(0, service(2, 5).purge());
+
+    verify(articleRepository, never()).purgeDeletedOlderThan(anyInt(), anyInt());
+  }
+
+  @Test
+  void test_off_peak_hours_may_wrap_past_midnight() {
+    ArticlePurgeService service = service(22, 4);
+    assertTrue(service.offPeak());
+    now.set(millis(THREE_AM.withHour(23)));
+    assertTrue(service.offPeak());
+    now.set(millis(THREE_AM.withHour(4)));
+    assertFalse(service.offPeak());
+  }
+}
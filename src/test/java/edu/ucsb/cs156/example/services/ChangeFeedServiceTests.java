@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.ChangeLogLock;
+import edu.ucsb.cs156.example.models.ChangesPage;
+import edu.ucsb.cs156.example.repositories.ChangeLogEntryRepository;
+import edu.ucsb.cs156.example.repositories.ChangeLogLockRepository;
+
+class ChangeFeedServiceTests {
+
+  ChangeFeedService service = new ChangeFeedService();
+
+  private static ChangeLogEntry entry(long seq) {
+    return ChangeLogEntry.builder().seq(seq).entityType("article").entityId("1").changeType(ChangeType.UPDATE).build();
+  }
+
+  @BeforeEach
+  void setup() {
+    service.changeLogEntryRepository = mock(ChangeLogEntryRepository.class);
+    service.changeLogLockRepository = mock(ChangeLogLockRepository.class);
+    when(service.changeLogLockRepository.lockFeed()).thenReturn(Optional.of(new ChangeLogLock(ChangeLogLock.ID)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_recordAll_saves_one_entry_per_id() {
+    service.recordAll("menuitemreviews", List.of(3L, 4L), ChangeType.INSERT);
+
+    InOrder inOrder = inOrder(service.changeLogLockRepository, service.changeLogEntryRepository);
+    inOrder.verify(service.changeLogLockRepository).lockFeed();
+    ArgumentCaptor<List<ChangeLogEntry>> saved = ArgumentCaptor.forClass(List.class);
+    inOrder.verify(service.changeLogEntryRepository).saveAll(saved.capture());
+    assertEquals(List.of("3", "4"), saved.getValue().stream().map(ChangeLogEntry::getEntityId).toList());
+    assertEquals(ChangeType.INSERT, saved.getValue().get(0).getChangeType());
+    assertEquals("menuitemreviews", saved.getValue().get(1).getEntityType());
+  }
+
+  @Test
+  void test_recordAll_of_nothing_saves_nothing() {
+    service.recordAll("menuitemreviews", List.of(), ChangeType.INSERT);
+
+    verify(service.changeLogEntryRepository, times(0)).saveAll(any());
+    verify(service.changeLogLockRepository, times(0)).lockFeed();
+  }
+
+  @Test
+  void test_recordAll_without_a_lock_row_fails_instead_of_inserting_it() {
+    when(service.changeLogLockRepository.lockFeed()).thenReturn(Optional.empty());
+
+    assertThrows(IllegalStateException.class, () -> service.record("article", 1L, ChangeType.UPDATE));
+
+    verify(service.changeLogLockRepository, times(0)).insertLockIfMissing();
+    verify(service.changeLogEntryRepository, times(0)).saveAll(any());
+  }
+
+  @Test
+  void test_seedLock_tolerates_another_instance_inserting_first() {
+    when(service.changeLogLockRepository.insertLockIfMissing())
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    service.seedLock();
+
+    verify(service.changeLogLockRepository).insertLockIfMissing();
+  }
+
+  @Test
+  void test_changesSince_reads_one_extra_entry_to_detect_more() {
+    when(service.changeLogEntryRepository.findBySeqGreaterThanOrderBySeq(10, PageRequest.of(0, 3)))
+        .thenReturn(List.of(entry(11), entry(12), entry(14)));
+
+    ChangesPage page = service.changesSince(10, 2);
+
+    assertEquals(List.of(entry(11), entry(12)), page.getChanges());
+    assertEquals(12, page.getNextSince());
+    assertEquals(true, page.getHasMore());
+  }
+
+  @Test
+  void test_changesSince_with_nothing_new_keeps_since() {
+    when(service.changeLogEntryRepository.findBySeqGreaterThanOrderBySeq(10, PageRequest.of(0, 501)))
+        .thenReturn(List.of());
+
+    ChangesPage page = service.changesSince(10, 500);
+
+    assertEquals(List.of(), page.getChanges());
+    assertEquals(10, page.getNextSince());
+    assertEquals(false, page.getHasMore());
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsDetail;
+import edu.ucsb.cs156.example.models.MenuItemDetail;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+class DiningCommonsDetailServiceTests {
+
+  AtomicLong now = new AtomicLong(1000);
+  DiningCommonsDetailService service = new DiningCommonsDetailService(60000, now::get);
+
+  UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+      .name("Ortega")
+      .code("ortega")
+      .build();
+
+  @BeforeEach
+  void setup() {
+    service.ucsbDiningCommonsRepository = mock(UCSBDiningCommonsRepository.class);
+    service.ucsbDiningCommonsMenuItemRepository = mock(UCSBDiningCommonsMenuItemRepository.class);
+    service.menuItemReviewRepository = mock(MenuItemReviewRepository.class);
+    when(service.ucsbDiningCommonsRepository.findById("ortega")).thenReturn(Optional.of(ortega));
+    when(service.ucsbDiningCommonsMenuItemRepository.findAllBydiningCommonsCode("ortega")).thenReturn(List.of(
+        item(3, "Tofu Banh Mi Sandwich", "Entree Specials"),
+        item(1, "Chicken Caesar Salad", "Salads"),
+        item(2, "Baked Pesto Pasta with Chicken", "Entree Specials")));
+    MenuItemRating rating = mock(MenuItemRating.class);
+    when(rating.getMenuItemId()).thenReturn(3L);
+    when(rating.getReviewCount()).thenReturn(4L);
+    when(rating.getAverageStars()).thenReturn(4.5);
+    when(service.menuItemReviewRepository.findRatingsByMenuItemIds(any())).thenReturn(List.of(rating));
+  }
+
+  private static UCSBDiningCommonsMenuItem item(long id, String name, String station) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .id(id)
+        .diningCommonsCode("ortega")
+        .name(name)
+        .station(station)
+        .build();
+  }
+
+  @Test
+  void test_getDetail_groups_items_by_station_sorted_by_name_with_ratings() {
+    DiningCommonsDetail detail = service.getDetail("ortega");
+
+    assertSame(ortega, detail.getCommons());
+    assertEquals(List.of("Entree Specials", "Salads"), List.copyOf(detail.getStations().keySet()));
+    assertEquals(List.of(
+        MenuItemDetail.builder().id(2).name("Baked Pesto Pasta with Chicken").build(),
+        MenuItemDetail.builder().id(3).name("Tofu Banh Mi Sandwich").reviewCount(4).averageStars(4.5).build()),
+        detail.getStations().get("Entree Specials"));
+    verify(service.menuItemReviewRepository).findRatingsByMenuItemIds(List.of(3L, 1L, 2L));
+  }
+
+  @Test
+  void test_getDetail_is_cached_until_evicted_or_expired() {
+    DiningCommonsDetail first = service.getDetail("ortega");
+    assertSame(first, service.getDetail("ortega"));
+    verify(service.ucsbDiningCommonsMenuItemRepository, times(1)).findAllBydiningCommonsCode("ortega");
+
+    service.evict("ortega");
+    service.getDetail("ortega");
+    verify(service.ucsbDiningCommonsMenuItemRepository, times(2)).findAllBydiningCommonsCode("ortega");
+
+    now.addAndGet(60000);
+    service.getDetail("ortega");
+    verify(service.ucsbDiningCommonsMenuItemRepository, times(3)).findAllBydiningCommonsCode("ortega");
+  }
+
+  @Test
+  void test_getDetail_for_unknown_code_throws() {
+    when(service.ucsbDiningCommonsRepository.findById("munger")).thenReturn(Optional.empty());
+
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class, () -> service.getDetail("munger"));
+    assertEquals("UCSBDiningCommons with id munger not found", e.getMessage());
+  }
+}
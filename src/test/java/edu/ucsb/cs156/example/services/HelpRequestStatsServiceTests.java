@@ -0,0 +1,155 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.HelpRequestStatsSnapshot;
+import edu.ucsb.cs156.example.models.HelpRequestBacklog;
+import edu.ucsb.cs156.example.models.HelpRequestSolve;
+import edu.ucsb.cs156.example.models.HelpRequestStats;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestStatsSnapshotRepository;
+
+class HelpRequestStatsServiceTests {
+
+  static final LocalDateTime NOW = LocalDateTime.parse("2022-10-20T12:00:00");
+
+  AtomicLong now = new AtomicLong(NOW.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+  // 60 minute window, no background snapshots
+  HelpRequestStatsService service = new HelpRequestStatsService(60, 0, now::get);
+
+  private static HelpRequestBacklog backlog(String teamId, long open) {
+    HelpRequestBacklog backlog = mock(HelpRequestBacklog.class);
+    when(backlog.getTeamId()).thenReturn(teamId);
+    when(backlog.getOpenCount()).thenReturn(open);
+    return backlog;
+  }
+
+  private static HelpRequestSolve solve(String teamId, int minutesAgo, int minutesToSolve) {
+    HelpRequestSolve solve = mock(HelpRequestSolve.class);
+    when(solve.getTeamId()).thenReturn(teamId);
+    when(solve.getRequestTime()).thenReturn(NOW.minusMinutes(minutesAgo + minutesToSolve));
+    when(solve.getSolvedTime()).thenReturn(NOW.minusMinutes(minutesAgo));
+    return solve;
+  }
+
+  private HelpRequestStats statsFor(String teamId) {
+    return service.stats().stream()
+        .filter(s -> teamId == null ? s.getTeamId() == null : teamId.equals(s.getTeamId()))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @BeforeEach
+  void setup() {
+    service.helpRequestRepository = mock(HelpRequestRepository.class);
+    service.helpRequestStatsSnapshotRepository = mock(HelpRequestStatsSnapshotRepository.class);
+    // built before the outer when(...), which mock stubbing inside thenReturn(...) would leave unfinished
+    List<HelpRequestBacklog> backlogs = List.of(backlog("7pm-2", 2), backlog("5pm-1", 1));
+    when(service.helpRequestRepository.countOpenByTeam()).thenReturn(backlogs);
+    List<HelpRequestSolve> solves = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      solves.add(solve("7pm-2", 50 - i, i));
+    }
+    solves.add(solve("5pm-1", 5, 30));
+    when(service.helpRequestRepository.findSolvedSince(any())).thenReturn(solves);
+    service.load();
+  }
+
+  @Test
+  void test_load_reads_backlog_and_solves_in_window() {
+    verify(service.helpRequestRepository).findSolvedSince(NOW.minusMinutes(60));
+
+    HelpRequestStats team = statsFor("7pm-2");
+    assertEquals(10, team.getSolvedCount());
+    assertEquals(300L, team.getMedianSolveSeconds());
+    assertEquals(540L, team.getP90SolveSeconds());
+    assertEquals(2, team.getOpenBacklog());
+    assertEquals(60, team.getWindowMinutes());
+
+    HelpRequestStats all = statsFor(null);
+    assertEquals(11, all.getSolvedCount());
+    assertEquals(360L, all.getMedianSolveSeconds());
+    assertEquals(600L, all.getP90SolveSeconds());
+    assertEquals(3, all.getOpenBacklog());
+
+    assertEquals(List.of("5pm-1", "7pm-2"),
+        service.stats().stream().skip(1).map(HelpRequestStats::getTeamId).toList());
+  }
+
+  @Test
+  void test_solves_leave_the_window() {
+    // the 7pm-2 solves happened 40 to 49 minutes ago
+    now.addAndGet(16 * 60 * 1000);
+
+    HelpRequestStats team = statsFor("7pm-2");
+    assertEquals(5, team.getSolvedCount());
+    assertEquals(8 * 60L, team.getMedianSolveSeconds());
+
+    now.addAndGet(60 * 60 * 1000);
+    HelpRequestStats all = statsFor(null);
+    assertEquals(0, all.getSolvedCount());
+    assertNull(all.getMedianSolveSeconds());
+    assertNull(all.getP90SolveSeconds());
+    assertEquals(3, all.getOpenBacklog());
+  }
+
+  @Test
+  void test_updates_move_requests_between_backlog_and_solves() {
+    HelpRequest request = HelpRequest.builder()
+        .teamId("6pm-4")
+        .requestTime(NOW.minusMinutes(20))
+        .build();
+    service.created(request);
+    assertEquals(1, statsFor("6pm-4").getOpenBacklog());
+    assertEquals(4, statsFor(null).getOpenBacklog());
+
+    request.setSolved(true);
+    request.setSolvedTime(NOW);
+    service.updated("6pm-4", false, request);
+    HelpRequestStats team = statsFor("6pm-4");
+    assertEquals(0, team.getOpenBacklog());
+    assertEquals(1, team.getSolvedCount());
+    assertEquals(1200L, team.getMedianSolveSeconds());
+
+    // reopened and moved to another team
+    request.setSolved(false);
+    request.setTeamId("7pm-2");
+    service.updated("6pm-4", true, request);
+    assertEquals(3, statsFor("7pm-2").getOpenBacklog());
+
+    service.deleted(request);
+    assertEquals(2, statsFor("7pm-2").getOpenBacklog());
+    assertEquals(3, statsFor(null).getOpenBacklog());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_snapshot_saves_a_row_per_team_and_overall() {
+    service.snapshot();
+
+    ArgumentCaptor<List<HelpRequestStatsSnapshot>> rows = ArgumentCaptor.forClass(List.class);
+    verify(service.helpRequestStatsSnapshotRepository).saveAll(rows.capture());
+    assertEquals(3, rows.getValue().size());
+    HelpRequestStatsSnapshot all = rows.getValue().get(0);
+    assertNull(all.getTeamId());
+    assertEquals(NOW, all.getTakenAt());
+    assertEquals(11, all.getSolvedCount());
+    assertEquals(3, all.getOpenBacklog());
+  }
+}
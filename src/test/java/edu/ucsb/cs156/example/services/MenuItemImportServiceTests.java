@@ -0,0 +1,263 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.BatchUpdateException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ImportJobStatus;
+import edu.ucsb.cs156.example.models.ImportLineError;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+class MenuItemImportServiceTests {
+
+  // batches of 2 rows, at most 2 errors kept, lines of at most 60 characters
+  MenuItemImportService service = new MenuItemImportService(2, 2, 20, 60);
+
+  Connection connection = mock(Connection.class);
+  PreparedStatement statement = mock(PreparedStatement.class);
+  ResultSet keys = mock(ResultSet.class);
+  PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+  AtomicLong nextId = new AtomicLong(100);
+  int batchRows;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws Exception {
+    service.ucsbDiningCommonsRepository = mock(UCSBDiningCommonsRepository.class);
+    service.jdbcTemplate = mock(JdbcTemplate.class);
+    service.changeFeedService = mock(ChangeFeedService.class);
+    service.transactionOperations = new TransactionTemplate(transactionManager);
+    service.diningCommonsDetailService = mock(DiningCommonsDetailService.class);
+    taskScheduler.initialize();
+    service.taskScheduler = taskScheduler;
+
+    when(service.ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(
+        UCSBDiningCommons.builder().code("ortega").build(),
+        UCSBDiningCommons.builder().code("de-la-guerra").build()));
+    when(service.jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenAnswer(inv -> {
+          try {
+            return ((ConnectionCallback<?>) inv.getArgument(0)).doInConnection(connection);
+          } catch (SQLException e) {
+            // as JdbcTemplate would translate it
+            throw new DataIntegrityViolationException(e.getMessage(), e);
+          }
+        });
+    when(connection.prepareStatement(eq(MenuItemImportService.INSERT_SQL), any(String[].class))).thenReturn(statement);
+    doAnswer(inv -> {
+      batchRows++;
+      return null;
+    }).when(statement).addBatch();
+    when(statement.getGeneratedKeys()).thenReturn(keys);
+    when(keys.next()).thenAnswer(inv -> {
+      if (batchRows == 0) {
+        return false;
+      }
+      batchRows--;
+      return true;
+    });
+    when(keys.getLong(1)).thenAnswer(inv -> nextId.incrementAndGet());
+  }
+
+  @AfterEach
+  void teardown() {
+    service.stop();
+    taskScheduler.shutdown();
+  }
+
+  private static MockMultipartFile csv(String content) {
+    return new MockMultipartFile("file", "menu.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ImportJobStatus await(String id) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      ImportJobStatus status = service.status(id);
+      if (status.getState() != ImportJobStatus.State.QUEUED && status.getState() != ImportJobStatus.State.RUNNING) {
+        return status;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("import " + id + " did not finish");
+  }
+
+  @Test
+  void test_valid_rows_are_inserted_in_batches() throws Exception {
+    String content = "\uFEFFStation,diningCommonsCode,name\r\n"
+        + "Grill,ortega,Pizza\r\n"
+        + "\"Salad, Bar\",de-la-guerra,\"Caesar \"\"Classic\"\"\"\r\n"
+        + "\r\n"
+        + "Grill,ortega,Burger\r\n";
+
+    ImportJobStatus status = await(service.start(csv(content)).getId());
+
+    assertEquals(ImportJobStatus.State.COMPLETED, status.getState());
+    assertEquals("menu.csv", status.getFileName());
+    assertEquals(5, status.getLinesRead());
+    assertEquals(3, status.getInserted());
+    assertEquals(0, status.getErrorCount());
+    assertEquals(status.getTotalBytes(), status.getBytesRead());
+    verify(statement).setString(1, "de-la-guerra");
+    verify(statement).setString(2, "Caesar \"Classic\"");
+    verify(statement).setString(3, "Salad, Bar");
+    verify(statement, times(2)).executeBatch();
+    verify(transactionManager, times(2)).commit(any());
+    verify(service.changeFeedService).recordAll("ucsbdiningcommonsmenuitem", List.of(101L, 102L), ChangeType.INSERT);
+    verify(service.changeFeedService).recordAll("ucsbdiningcommonsmenuitem", List.of(103L), ChangeType.INSERT);
+    verify(service.diningCommonsDetailService).evictAll();
+  }
+
+  @Test
+  void test_invalid_lines_are_reported_and_skipped() throws Exception {
+    String content = "diningCommonsCode,name,station\n"
+        + "carrillo,Pizza,Grill\n"
+        + "ortega,,Grill\n"
+        + "ortega,\"Pizza,Grill\n"
+        + "ortega,Pizza,Grill\n";
+
+    ImportJobStatus status = await(service.start(csv(content)).getId());
+
+    assertEquals(ImportJobStatus.State.COMPLETED, status.getState());
+    assertEquals(1, status.getInserted());
+    assertEquals(3, status.getErrorCount());
+    // only the first maxErrors are kept
+    assertEquals(List.of(
+        ImportLineError.builder().line(2).message("Unknown diningCommonsCode carrillo").build(),
+        ImportLineError.builder().line(3).message("name is missing").build()),
+        status.getErrors());
+  }
+
+  @Test
+  void test_long_lines_are_skipped() throws Exception {
+    String content = "diningCommonsCode,name,station\n"
+        + "ortega," + "x".repeat(50) + ",Grill\n"
+        + "ortega,Pizza,Grill\n";
+
+    ImportJobStatus status = await(service.start(csv(content)).getId());
+
+    assertEquals(1, status.getInserted());
+    assertEquals(List.of(ImportLineError.builder().line(2).message("line is longer than 60 characters").build()),
+        status.getErrors());
+  }
+
+  @Test
+  void test_crlf_does_not_count_toward_the_line_length() throws Exception {
+    // exactly 60 characters before the \r\n
+    String content = "diningCommonsCode,name,station\r\n"
+        + "ortega," + "x".repeat(47) + ",Grill\r\n";
+
+    ImportJobStatus status = await(service.start(csv(content)).getId());
+
+    assertEquals(1, status.getInserted());
+    assertEquals(0, status.getErrorCount());
+  }
+
+  @Test
+  void test_a_failed_batch_reports_its_lines() throws Exception {
+    when(statement.executeBatch()).thenThrow(new BatchUpdateException("value too long", new int[0]));
+    String content = "diningCommonsCode,name,station\n"
+        + "ortega,Pizza,Grill\n";
+
+    ImportJobStatus status = await(service.start(csv(content)).getId());
+
+    assertEquals(ImportJobStatus.State.COMPLETED, status.getState());
+    assertEquals(0, status.getInserted());
+    assertEquals(1, status.getErrorCount());
+    assertEquals(2, status.getErrors().get(0).getLine());
+    verify(transactionManager).rollback(any());
+    verify(transactionManager, never()).commit(any());
+    verify(service.changeFeedService, never()).recordAll(any(), anyList(), any());
+    verify(service.diningCommonsDetailService, never()).evictAll();
+  }
+
+  @Test
+  void test_missing_header_column_fails_the_job() throws Exception {
+    ImportJobStatus status = await(service.start(csv("diningCommonsCode,name\nortega,Pizza\n")).getId());
+
+    assertEquals(ImportJobStatus.State.FAILED, status.getState());
+    assertEquals("The first line must name the diningCommonsCode, name and station columns", status.getMessage());
+    verify(service.jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+  }
+
+  @Test
+  void test_cancel_stops_after_the_batch_in_progress() throws Exception {
+    CountDownLatch cancelled = new CountDownLatch(1);
+    when(statement.executeBatch()).thenAnswer(inv -> {
+      cancelled.await(5, TimeUnit.SECONDS);
+      return new int[0];
+    });
+    StringBuilder content = new StringBuilder("diningCommonsCode,name,station\n");
+    for (int i = 0; i < 10; i++) {
+      content.append("ortega,Item ").append(i).append(",Grill\n");
+    }
+
+    String id = service.start(csv(content.toString())).getId();
+    service.cancel(id);
+    cancelled.countDown();
+    ImportJobStatus status = await(id);
+
+    assertEquals(ImportJobStatus.State.CANCELLED, status.getState());
+    // a job cancelled before it starts inserts nothing; otherwise only the rows of the batch in progress
+    assertTrue(status.getInserted() <= 2);
+  }
+
+  @Test
+  void test_stop_finishes_queued_jobs_at_once() throws Exception {
+    CountDownLatch inserting = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    when(statement.executeBatch()).thenAnswer(inv -> {
+      inserting.countDown();
+      released.await(5, TimeUnit.SECONDS);
+      return new int[0];
+    });
+
+    String running = service.start(csv("diningCommonsCode,name,station\nortega,Burrito,Grill\n")).getId();
+    assertTrue(inserting.await(5, TimeUnit.SECONDS));
+    String queued = service.start(csv("diningCommonsCode,name,station\nortega,Taco,Grill\n")).getId();
+    service.stop();
+
+    assertEquals(ImportJobStatus.State.CANCELLED, service.status(queued).getState());
+    released.countDown();
+    assertEquals(1, await(running).getInserted());
+  }
+
+  @Test
+  void test_unknown_job_is_not_found() {
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class, () -> service.status("nope"));
+    assertEquals("ImportJobStatus with id nope not found", e.getMessage());
+  }
+}
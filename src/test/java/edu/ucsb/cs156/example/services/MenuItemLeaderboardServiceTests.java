@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemRating;
+import edu.ucsb.cs156.example.models.TopMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+class MenuItemLeaderboardServiceTests {
+
+  // prior of 3 stars weighted as 2 reviews
+  MenuItemLeaderboardService service = new MenuItemLeaderboardService(3.0, 2);
+
+  UCSBDiningCommonsMenuItem pasta = item(1, "Baked Pesto Pasta with Chicken", "ortega");
+  UCSBDiningCommonsMenuItem salad = item(2, "Chicken Caesar Salad", "ortega");
+  UCSBDiningCommonsMenuItem tacos = item(3, "Fish Tacos", "carrillo");
+
+  private static UCSBDiningCommonsMenuItem item(long id, String name, String commons) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .id(id)
+        .name(name)
+        .diningCommonsCode(commons)
+        .station("Entree Specials")
+        .build();
+  }
+
+  private static MenuItemRating rating(long menuItemId, long count, long starSum) {
+    MenuItemRating rating = mock(MenuItemRating.class);
+    when(rating.getMenuItemId()).thenReturn(menuItemId);
+    when(rating.getReviewCount()).thenReturn(count);
+    when(rating.getStarSum()).thenReturn(starSum);
+    return rating;
+  }
+
+  private static MenuItemReview review(long menuItemId, int stars) {
+    return MenuItemReview.builder().menuItemId(menuItemId).stars(stars).build();
+  }
+
+  private List<Long> topIds(String commons) {
+    return service.top(commons, 10).stream().map(TopMenuItem::getId).toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    service.menuItemReviewRepository = mock(MenuItemReviewRepository.class);
+    service.ucsbDiningCommonsMenuItemRepository = mock(UCSBDiningCommonsMenuItemRepository.class);
+    when(service.ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(List.of(pasta, salad, tacos));
+    // pasta: 1 review of 5 -> (6 + 5) / 3 = 3.67; salad: 8 reviews totalling 36 -> (6 + 36) / 10 = 4.2
+    // (mocks stubbed inside thenReturn(...) would leave the outer stubbing unfinished)
+    List<MenuItemRating> ratings = List.of(rating(1, 1, 5), rating(2, 8, 36), rating(3, 2, 4));
+    when(service.menuItemReviewRepository.findAllRatings()).thenReturn(ratings);
+    service.rebuild();
+  }
+
+  @Test
+  void test_rebuild_ranks_by_smoothed_rating_overall_and_per_commons() {
+    assertEquals(List.of(2L, 1L, 3L), topIds(null));
+    assertEquals(List.of(2L, 1L), topIds("ortega"));
+    assertEquals(List.of(3L), topIds("carrillo"));
+    assertEquals(List.of(), topIds("portola"));
+
+    TopMenuItem best = service.top("ortega", 1).get(0);
+    assertEquals(8, best.getReviewCount());
+    assertEquals(4.5, best.getAverageStars(), 1e-9);
+    assertEquals(4.2, best.getScore(), 1e-9);
+  }
+
+  @Test
+  void test_top_sees_the_old_leaderboard_until_a_rebuild_is_done() {
+    MenuItemRating tacosNow = rating(3, 20, 100);
+    when(service.menuItemReviewRepository.findAllRatings()).thenAnswer(invocation -> {
+      assertEquals(List.of(2L, 1L, 3L), topIds(null));
+      return List.of(tacosNow);
+    });
+
+    service.rebuild();
+
+    assertEquals(List.of(3L), topIds(null));
+    assertEquals(List.of(), topIds("ortega"));
+  }
+
+  @Test
+  void test_reviews_move_items_incrementally() {
+    for (int i = 0; i < 10; i++) {
+      service.reviewAdded(review(1, 5));
+    }
+    assertEquals(List.of(1L, 2L), topIds("ortega"));
+
+    service.reviewRemoved(review(3, 2));
+    service.reviewRemoved(review(3, 2));
+    assertEquals(List.of(), topIds("carrillo"));
+
+    service.reviewChanged(1L, 5, review(2, 1));
+    assertEquals(10, service.top("ortega", 1).get(0).getReviewCount());
+  }
+
+  @Test
+  void test_first_review_of_an_unranked_item_looks_it_up() {
+    UCSBDiningCommonsMenuItem burrito = item(4, "Burrito", "portola");
+    when(service.ucsbDiningCommonsMenuItemRepository.findById(4L)).thenReturn(Optional.of(burrito));
+
+    service.reviewAdded(review(4, 4));
+
+    assertEquals(List.of(4L), topIds("portola"));
+  }
+
+  @Test
+  void test_renamed_item_keeps_its_place_once() {
+    service.menuItemChanged(item(2, "Chicken Caesar Wrap", "ortega"));
+
+    assertEquals(List.of(2L, 1L), topIds("ortega"));
+    assertEquals(List.of(2L, 1L, 3L), topIds(null));
+    assertEquals("Chicken Caesar Wrap", service.top("ortega", 1).get(0).getName());
+  }
+
+  @Test
+  void test_menu_item_changes_move_or_drop_entries() {
+    service.menuItemChanged(item(1, "Baked Pesto Pasta with Chicken", "carrillo"));
+    assertEquals(List.of(2L), topIds("ortega"));
+    assertEquals(List.of(1L, 3L), topIds("carrillo"));
+
+    service.menuItemRemoved(1L);
+    assertEquals(List.of(3L), topIds("carrillo"));
+  }
+}
@@ -0,0 +1,168 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry.ChangeType;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+class MenuItemReviewWriteBehindServiceTests {
+
+  @TempDir
+  Path journal;
+
+  MenuItemReviewRepository menuItemReviewRepository = mock(MenuItemReviewRepository.class);
+
+  MenuItemLeaderboardService menuItemLeaderboardService = mock(MenuItemLeaderboardService.class);
+
+  ChangeFeedService changeFeedService = mock(ChangeFeedService.class);
+
+  ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+  MenuItemReviewWriteBehindService service;
+
+  private MenuItemReviewWriteBehindService newService() throws Exception {
+    MenuItemReviewWriteBehindService s = new MenuItemReviewWriteBehindService();
+    s.menuItemReviewRepository = menuItemReviewRepository;
+    s.menuItemLeaderboardService = menuItemLeaderboardService;
+    s.changeFeedService = changeFeedService;
+    s.transactionOperations = TransactionOperations.withoutTransaction();
+    s.taskScheduler = taskScheduler;
+    s.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    ReflectionTestUtils.setField(s, "enabled", true);
+    ReflectionTestUtils.setField(s, "batchSize", 100);
+    ReflectionTestUtils.setField(s, "flushIntervalMillis", 60000L);
+    ReflectionTestUtils.setField(s, "maxPending", 2);
+    ReflectionTestUtils.setField(s, "journalDir", journal.toString());
+    s.start();
+    return s;
+  }
+
+  private MenuItemReview review(String email) {
+    return MenuItemReview.builder()
+        .reviewerEmail(email)
+        .stars(4)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .comments("Good")
+        .build();
+  }
+
+  private long segmentCount() throws Exception {
+    try (Stream<Path> files = Files.list(journal)) {
+      return files.count();
+    }
+  }
+
+  @BeforeEach
+  void setup() throws Exception {
+    taskScheduler.initialize();
+    service = newService();
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    service.stop();
+    taskScheduler.shutdown();
+  }
+
+  @Test
+  void test_submit_journals_and_flush_saves_in_one_batch() throws Exception {
+    assertEquals(1L, service.submit(review("a@ucsb.edu")).getSequence());
+    assertEquals(2, service.submit(review("b@ucsb.edu")).getPending());
+    verify(menuItemReviewRepository, times(0)).saveAll(anyList());
+
+    service.flush();
+
+    verify(menuItemReviewRepository).saveAll(List.of(review("a@ucsb.edu"), review("b@ucsb.edu")));
+    verify(changeFeedService).recordAll("menuitemreviews", List.of(0L, 0L), ChangeType.INSERT);
+    assertEquals(1L, segmentCount());
+  }
+
+  @Test
+  void test_unflushed_reviews_are_replayed_on_restart() throws Exception {
+    service.submit(review("a@ucsb.edu"));
+
+    // simulate a crash: start a second instance on the same journal without stopping the first
+    service = newService();
+
+    verify(menuItemReviewRepository).saveAll(List.of(review("a@ucsb.edu")));
+  }
+
+  @Test
+  void test_a_segment_that_fails_to_replay_is_set_aside() throws Exception {
+    service.submit(review("a@ucsb.edu"));
+    when(menuItemReviewRepository.saveAll(anyList())).thenThrow(new IllegalStateException("foreign key violation"));
+
+    service = newService();
+
+    try (Stream<Path> files = Files.list(journal)) {
+      assertEquals(List.of("segment-000000000000.jsonl.failed", "segment-000000000001.jsonl"),
+          files.map(path -> path.getFileName().toString()).sorted().toList());
+    }
+  }
+
+  @Test
+  void test_submit_rejects_invalid_reviews() {
+    MenuItemReview invalid = review("a@ucsb.edu");
+    invalid.setStars(9);
+    BadRequestException e = assertThrows(BadRequestException.class, () -> service.submit(invalid));
+    assertEquals("stars must be between 0 and 5", e.getMessage());
+  }
+
+  @Test
+  void test_submit_rejects_when_the_buffer_is_full() throws Exception {
+    service.submit(review("a@ucsb.edu"));
+    service.submit(review("b@ucsb.edu"));
+    assertThrows(TaskRejectedException.class, () -> service.submit(review("c@ucsb.edu")));
+  }
+
+  @Test
+  void test_start_requires_a_journal_directory() {
+    MenuItemReviewWriteBehindService s = new MenuItemReviewWriteBehindService();
+    ReflectionTestUtils.setField(s, "enabled", true);
+    ReflectionTestUtils.setField(s, "journalDir", "");
+    IllegalStateException e = assertThrows(IllegalStateException.class, s::start);
+    assertEquals("app.reviews.writeBehind.journalDir must be set when app.reviews.writeBehind.enabled is true",
+        e.getMessage());
+  }
+
+  @Test
+  void test_stop_closes_the_journal_even_when_the_last_flush_fails() throws Exception {
+    service.submit(review("a@ucsb.edu"));
+    when(menuItemReviewRepository.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+
+    assertThrows(IllegalStateException.class, service::stop);
+
+    FileChannel segment = (FileChannel) ReflectionTestUtils.getField(service, "segment");
+    assertFalse(segment.isOpen());
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemDelta;
+
+class MenuItemUpdatePublisherTests {
+
+  MenuItemUpdatePublisher publisher = new MenuItemUpdatePublisher();
+
+  UCSBDiningCommonsMenuItem pasta = UCSBDiningCommonsMenuItem.builder()
+      .id(15L)
+      .diningCommonsCode("ortega")
+      .name("Baked Pesto Pasta with Chicken")
+      .station("Entree Specials")
+      .build();
+
+  MenuItemDelta created = MenuItemDelta.builder()
+      .op("create")
+      .id(15L)
+      .name("Baked Pesto Pasta with Chicken")
+      .station("Entree Specials")
+      .build();
+
+  MenuItemDelta deleted = MenuItemDelta.builder().op("delete").id(15L).build();
+
+  @BeforeEach
+  void setup() {
+    publisher.messagingTemplate = mock(SimpMessageSendingOperations.class);
+  }
+
+  @Test
+  void test_create_and_delete_go_to_the_items_commons() {
+    publisher.created(pasta);
+    publisher.deleted(pasta);
+
+    verify(publisher.messagingTemplate).convertAndSend("/topic/ucsbdiningcommonsmenuitem/ortega", created);
+    verify(publisher.messagingTemplate).convertAndSend("/topic/ucsbdiningcommonsmenuitem/ortega", deleted);
+  }
+
+  @Test
+  void test_update_in_place_is_one_update() {
+    publisher.updated("ortega", pasta);
+
+    verify(publisher.messagingTemplate).convertAndSend("/topic/ucsbdiningcommonsmenuitem/ortega",
+        MenuItemDelta.builder().op("update").id(15L).name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials").build());
+  }
+
+  @Test
+  void test_update_that_moves_commons_deletes_then_creates() {
+    publisher.updated("portola", pasta);
+
+    verify(publisher.messagingTemplate).convertAndSend("/topic/ucsbdiningcommonsmenuitem/portola", deleted);
+    verify(publisher.messagingTemplate).convertAndSend("/topic/ucsbdiningcommonsmenuitem/ortega", created);
+  }
+
+  @Test
+  void test_failed_push_does_not_throw() {
+    doThrow(new MessageDeliveryException("outbound queue full"))
+        .when(publisher.messagingTemplate).convertAndSend(anyString(), any(Object.class));
+
+    publisher.created(pasta);
+
+    verify(publisher.messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+  }
+}
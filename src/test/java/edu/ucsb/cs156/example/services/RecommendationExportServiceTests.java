@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.Recommendation;
+import edu.ucsb.cs156.example.repositories.RecommendationRepository;
+
+class RecommendationExportServiceTests {
+
+  RecommendationExportService service = new RecommendationExportService();
+  AtomicBoolean closed = new AtomicBoolean();
+
+  Recommendation first = Recommendation.builder()
+      .id(1L)
+      .requesterEmail("student@ucsb.edu")
+      .professorEmail("prof@ucsb.edu")
+      .dateRequested(LocalDateTime.parse("2022-01-03T10:00:00"))
+      .dateNeeded(LocalDateTime.parse("2022-02-01T00:00:00"))
+      .explanation("Grad school, \"PhD\" programs\nthree letters")
+      .done(false)
+      .build();
+  Recommendation second = Recommendation.builder()
+      .id(2L)
+      .requesterEmail("other@ucsb.edu")
+      .professorEmail("prof@ucsb.edu")
+      .dateRequested(LocalDateTime.parse("2022-01-04T10:00:00"))
+      .explanation("=HYPERLINK(\"x\")")
+      .done(true)
+      .build();
+
+  @BeforeEach
+  void setup() {
+    service.recommendationRepository = mock(RecommendationRepository.class);
+    service.entityManager = mock(EntityManager.class);
+    service.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  private Stream<Recommendation> rows() {
+    return Stream.of(first, second).onClose(() -> closed.set(true));
+  }
+
+  @Test
+  void test_csv_export_for_one_professor() throws Exception {
+    LocalDateTime from = LocalDateTime.parse("2022-01-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2022-07-01T00:00:00");
+    when(service.recommendationRepository
+        .streamByProfessorEmailAndDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(
+            "prof@ucsb.edu", from, to))
+        .thenReturn(rows());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    service.export("prof@ucsb.edu", from, to, RecommendationExportService.Format.CSV, out);
+
+    String expected = RecommendationExportService.CSV_HEADER + "\r\n"
+        + "1,student@ucsb.edu,prof@ucsb.edu,2022-01-03T10:00,2022-02-01T00:00,"
+        + "\"Grad school, \"\"PhD\"\" programs\nthree letters\",false\r\n"
+        + "2,other@ucsb.edu,prof@ucsb.edu,2022-01-04T10:00,,\"'=HYPERLINK(\"\"x\"\")\",true\r\n";
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    verify(service.entityManager).detach(first);
+    verify(service.entityManager).detach(second);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  void test_json_lines_export_with_open_range() throws Exception {
+    when(service.recommendationRepository
+        .streamByDateRequestedGreaterThanEqualAndDateRequestedLessThanOrderByDateRequestedAscIdAsc(
+            RecommendationExportService.EARLIEST, RecommendationExportService.LATEST))
+        .thenReturn(rows());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    service.export(null, null, null, RecommendationExportService.Format.JSONL, out);
+
+    String expected = service.objectMapper.writeValueAsString(first) + "\n"
+        + service.objectMapper.writeValueAsString(second) + "\n";
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    assertTrue(closed.get());
+  }
+
+  @Test
+  void test_csvField() {
+    assertEquals("", RecommendationExportService.csvField(null));
+    assertEquals("plain", RecommendationExportService.csvField("plain"));
+    assertEquals("'-1", RecommendationExportService.csvField("-1"));
+    assertEquals("\"a,b\"", RecommendationExportService.csvField("a,b"));
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SparseFieldsetServiceTests {
+
+  @Mock
+  EntityManager entityManager;
+
+  @Mock
+  Metamodel metamodel;
+
+  @Mock
+  EntityType<Article> entityType;
+
+  @InjectMocks
+  SparseFieldsetService sparseFieldsetService;
+
+  @BeforeEach
+  void setup() {
+    Set<SingularAttribute<? super Article, ?>> attributes = Set.of(
+        attribute("id"), attribute("title"), attribute("explanation"));
+    when(entityManager.getMetamodel()).thenReturn(metamodel);
+    when(metamodel.entity(Article.class)).thenReturn(entityType);
+    doReturn(attributes).when(entityType).getSingularAttributes();
+  }
+
+  @SuppressWarnings("unchecked")
+  private SingularAttribute<? super Article, ?> attribute(String name) {
+    SingularAttribute<Article, Object> attribute = mock(SingularAttribute.class);
+    when(attribute.getName()).thenReturn(name);
+    when(attribute.getPersistentAttributeType()).thenReturn(Attribute.PersistentAttributeType.BASIC);
+    return attribute;
+  }
+
+  @Test
+  void test_parseFields_keeps_requested_order_and_drops_blanks_and_duplicates() {
+    List<String> names = sparseFieldsetService.parseFields(Article.class, "title, id,,title");
+    assertEquals(List.of("title", "id"), names);
+  }
+
+  @Test
+  void test_parseFields_rejects_unknown_field() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> sparseFieldsetService.parseFields(Article.class, "id,bogus"));
+    assertEquals("Unknown field bogus for Article; valid fields are [explanation, id, title]", e.getMessage());
+  }
+
+  @Test
+  void test_parseFields_rejects_empty_list() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> sparseFieldsetService.parseFields(Article.class, " , "));
+    assertEquals("fields must name at least one field of Article", e.getMessage());
+  }
+
+  @Test
+  void test_parseFields_reads_metamodel_once_per_entity() {
+    sparseFieldsetService.parseFields(Article.class, "id");
+    sparseFieldsetService.parseFields(Article.class, "title");
+    verify(metamodel, times(1)).entity(Article.class);
+  }
+}
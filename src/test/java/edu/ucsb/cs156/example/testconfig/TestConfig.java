@@ -2,6 +2,7 @@ package edu.ucsb.cs156.example.testconfig;
 
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionOperations;
 
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
@@ -18,4 +19,10 @@ public class TestConfig {
     public GrantedAuthoritiesService grantedAuthoritiesService() {
         return new GrantedAuthoritiesService();
     }
+
+    // @WebMvcTest has no transaction manager; controllers run their writes directly
+    @Bean
+    public TransactionOperations transactionOperations() {
+        return TransactionOperations.withoutTransaction();
+    }
 }